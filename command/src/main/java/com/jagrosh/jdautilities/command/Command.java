@@ -16,16 +16,16 @@
 package com.jagrosh.jdautilities.command;
 
 import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.Permission;
-import net.dv8tion.jda.api.entities.GuildVoiceState;
 import net.dv8tion.jda.api.entities.channel.ChannelType;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
-import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
 
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 
@@ -120,6 +120,7 @@ public abstract class Command extends Interaction
     /**
      * The child commands of the command. These are used in the format {@code [prefix]<parent name>
      * <child name>}.
+     * <br>These are indexed the first time a child is looked up, so they should not be changed afterwards.
      */
     protected Command[] children = new Command[0];
 
@@ -144,6 +145,12 @@ public abstract class Command extends Interaction
      */
     protected boolean hidden = false;
 
+    // Children by name and alias, built the first time a child is looked up
+    private volatile ChildIndex<Command> childIndex;
+
+    // Commands that generate their own cooldown keys can't use the primitive ones
+    private static final ClassValue<Boolean> CUSTOM_COOLDOWN_KEY = overrides(Command.class, "getCooldownKey", CommandEvent.class);
+
     /**
      * The main body method of a {@link com.jagrosh.jdautilities.command.Command Command}.
      * <br>This is the "response" for a successful
@@ -165,23 +172,32 @@ public abstract class Command extends Interaction
      */
     public final void run(CommandEvent event)
     {
+        // only time the run when something records it
+        if(event.getClient().getCommandMetrics() != CommandMetrics.NONE || event.getClient().getCommandTracer() != CommandTracer.NONE)
+            event.runStart = System.nanoTime();
+
         // child check
         if(!event.getArgs().isEmpty())
         {
-            String[] parts = Arrays.copyOf(event.getArgs().split("\\s+",2), 2);
-            if(helpBiConsumer!=null && parts[0].equalsIgnoreCase(event.getClient().getHelpWord()))
+            String args = event.getArgs();
+            int end = 0;
+            while(end < args.length() && !isWhitespace(args.charAt(end)))
+                end++;
+            String first = args.substring(0, end);
+            if(helpBiConsumer!=null && first.equalsIgnoreCase(event.getClient().getHelpWord()))
             {
                 helpBiConsumer.accept(event, this);
                 return;
             }
-            for(Command cmd: getChildren())
+            Command cmd = findChild(first);
+            if(cmd != null)
             {
-                if(cmd.isCommandFor(parts[0]))
-                {
-                    event.setArgs(parts[1]==null ? "" : parts[1]);
-                    cmd.run(event);
-                    return;
-                }
+                int start = end;
+                while(start < args.length() && isWhitespace(args.charAt(start)))
+                    start++;
+                event.setArgs(args.substring(start));
+                cmd.run(event);
+                return;
             }
         }
 
@@ -218,63 +234,19 @@ public abstract class Command extends Interaction
         if(!event.isFromType(ChannelType.PRIVATE))
         {
             //user perms
-            for(Permission p: userPermissions)
+            String permissionError = checkUserPermissions(event.getMember(), event.getGuildChannel(), event.getClient().getError());
+            if(permissionError != null)
             {
-                if(p.isChannel())
-                {
-                    if(!event.getMember().hasPermission(event.getGuildChannel(), p))
-                    {
-                        terminate(event, String.format(userMissingPermMessage, event.getClient().getError(), p.getName(), "channel"));
-                        return;
-                    }
-                }
-                else
-                {
-                    if(!event.getMember().hasPermission(p))
-                    {
-                        terminate(event, String.format(userMissingPermMessage, event.getClient().getError(), p.getName(), "server"));
-                        return;
-                    }
-                }
+                terminate(event, permissionError);
+                return;
             }
 
             // bot perms
-            for(Permission p: botPermissions)
+            permissionError = checkBotPermissions(event.getGuild(), event.getMember(), event.getGuildChannel(), event.getClient().getError(), 0);
+            if(permissionError != null)
             {
-                if(p.isChannel())
-                {
-                    if((p.name().startsWith("VOICE")))
-                    {
-                        GuildVoiceState gvc = event.getMember().getVoiceState();
-                        AudioChannel vc = gvc == null ? null : gvc.getChannel();
-                        if(vc==null)
-                        {
-                            terminate(event, event.getClient().getError()+" You must be in a voice channel to use that!");
-                            return;
-                        }
-                        else if(!event.getSelfMember().hasPermission(vc, p))
-                        {
-                            terminate(event, String.format(botMissingPermMessage, event.getClient().getError(), p.getName(), "voice channel"));
-                            return;
-                        }
-                    }
-                    else
-                    {
-                        if(!event.getSelfMember().hasPermission(event.getGuildChannel(), p))
-                        {
-                            terminate(event, String.format(botMissingPermMessage, event.getClient().getError(), p.getName(), "channel"));
-                            return;
-                        }
-                    }
-                }
-                else
-                {
-                    if(!event.getSelfMember().hasPermission(p))
-                    {
-                        terminate(event, String.format(botMissingPermMessage, event.getClient().getError(), p.getName(), "server"));
-                        return;
-                    }
-                }
+                terminate(event, permissionError);
+                return;
             }
 
             // nsfw check
@@ -290,23 +262,61 @@ public abstract class Command extends Interaction
             return;
         }
 
+        CommandTracer tracer = event.getClient().getCommandTracer();
+        CommandMetrics metrics = event.getClient().getCommandMetrics();
+        long cooldownStart = tracer != CommandTracer.NONE ? System.nanoTime() : 0;
+
         // cooldown check, ignoring owner
         if(cooldown>0 && !(event.isOwner()))
         {
-            String key = getCooldownKey(event);
-            int remaining = event.getClient().getRemainingCooldown(key);
+            int remaining = CUSTOM_COOLDOWN_KEY.get(getClass())
+                    ? event.getClient().tryApplyCooldown(getCooldownKey(event), cooldown)
+                    : tryApplyCooldown(event);
             if(remaining>0)
             {
                 terminate(event, getCooldownError(event, remaining));
                 return;
             }
-            else event.getClient().applyCooldown(key, cooldown);
+        }
+
+        // rate limit check, ignoring owner
+        if(rateLimits.length>0 && !(event.isOwner()))
+        {
+            long now = System.currentTimeMillis();
+            for(int i = 0; i < rateLimits.length; i++)
+            {
+                long wait = rateLimits[i].tryAcquire(getScopeKey(event, rateLimits[i].getScope()), now);
+                if(wait>0)
+                {
+                    // give back what this use already took, so a rejected use isn't counted anywhere
+                    for(int j = 0; j < i; j++)
+                        rateLimits[j].refund(getScopeKey(event, rateLimits[j].getScope()), now);
+                    if(cooldown>0)
+                        event.getClient().getCooldownStore().remove(getCooldownKey(event));
+                    terminate(event, getRateLimitError(event.getClient().getWarning(), rateLimits[i], event.getGuild()!=null, wait));
+                    return;
+                }
+            }
+        }
+
+        long cooldownNanos = tracer != CommandTracer.NONE ? System.nanoTime() - cooldownStart : 0;
+
+        long executeStart = 0;
+        if(tracer != CommandTracer.NONE)
+        {
+            executeStart = System.nanoTime();
+            tracer.recordStage(event.getEvent(), CommandTracer.Stage.CHECKS, executeStart - event.runStart - cooldownNanos);
+            tracer.recordStage(event.getEvent(), CommandTracer.Stage.COOLDOWN, cooldownNanos);
         }
 
         // run
         try {
             execute(event);
         } catch(Throwable t) {
+            if(tracer != CommandTracer.NONE)
+                tracer.recordStage(event.getEvent(), CommandTracer.Stage.EXECUTE, System.nanoTime() - executeStart);
+            if(metrics != CommandMetrics.NONE)
+                metrics.recordException(this, t, System.nanoTime() - event.runStart);
             if(event.getClient().getListener() != null)
             {
                 event.getClient().getListener().onCommandException(event, this, t);
@@ -316,6 +326,10 @@ public abstract class Command extends Interaction
             throw t;
         }
 
+        if(tracer != CommandTracer.NONE)
+            tracer.recordStage(event.getEvent(), CommandTracer.Stage.EXECUTE, System.nanoTime() - executeStart);
+        if(metrics != CommandMetrics.NONE)
+            metrics.recordCompletion(this, System.nanoTime() - event.runStart);
         if(event.getClient().getListener() != null)
             event.getClient().getListener().onCompletedCommand(event, this);
     }
@@ -338,6 +352,34 @@ public abstract class Command extends Interaction
         return false;
     }
 
+    /**
+     * Finds the child of this Command the given input represents.
+     * <br>This is the same as finding the first of the {@link #getChildren() children} for which
+     * {@link #isCommandFor(String)} returns {@code true}, but doesn't have to check each of them
+     * unless one of them overrides it.
+     *
+     * @param  input
+     *         The input to check
+     *
+     * @return The child the input is the name or an alias of, or {@code null} if there is none
+     */
+    public Command findChild(String input)
+    {
+        ChildIndex<Command> index = childIndex;
+        if(index == null)
+            childIndex = index = new ChildIndex<>(getChildren(), null);
+        if(index.customMatching)
+        {
+            for(Command child : index.children)
+            {
+                if(child.isCommandFor(input))
+                    return child;
+            }
+            return null;
+        }
+        return index.get(null, input);
+    }
+
     /**
      * Checks whether a command is allowed in a {@link TextChannel}
      * by searching the channel topic for topic tags relating to the command.
@@ -474,8 +516,17 @@ public abstract class Command extends Interaction
         return hidden;
     }
 
+    // Matches the whitespace of the "\\s" regular expression
+    private static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
     private void terminate(CommandEvent event, String message)
     {
+        CommandMetrics metrics = event.getClient().getCommandMetrics();
+        if(metrics != CommandMetrics.NONE)
+            metrics.recordTermination(this, System.nanoTime() - event.runStart);
         if(message!=null)
             event.reply(message);
         if(event.getClient().getListener()!=null)
@@ -493,24 +544,55 @@ public abstract class Command extends Interaction
      */
     public String getCooldownKey(CommandEvent event)
     {
-        switch (cooldownScope)
+        return getScopeKey(event, cooldownScope);
+    }
+
+    // Generates the key for the provided scope, used for both cooldowns and rate limits
+    String getScopeKey(CommandEvent event, CooldownScope scope)
+    {
+        switch (scope)
         {
-            case USER:         return cooldownScope.genKey(name,event.getAuthor().getIdLong());
-            case USER_GUILD:   return event.getGuild()!=null ? cooldownScope.genKey(name,event.getAuthor().getIdLong(),event.getGuild().getIdLong()) :
+            case USER:         return scope.genKey(name,event.getAuthor().getIdLong());
+            case USER_GUILD:   return event.getGuild()!=null ? scope.genKey(name,event.getAuthor().getIdLong(),event.getGuild().getIdLong()) :
                 CooldownScope.USER_CHANNEL.genKey(name,event.getAuthor().getIdLong(), event.getChannel().getIdLong());
-            case USER_CHANNEL: return cooldownScope.genKey(name,event.getAuthor().getIdLong(),event.getChannel().getIdLong());
-            case GUILD:        return event.getGuild()!=null ? cooldownScope.genKey(name,event.getGuild().getIdLong()) :
+            case USER_CHANNEL: return scope.genKey(name,event.getAuthor().getIdLong(),event.getChannel().getIdLong());
+            case GUILD:        return event.getGuild()!=null ? scope.genKey(name,event.getGuild().getIdLong()) :
                 CooldownScope.CHANNEL.genKey(name,event.getChannel().getIdLong());
-            case CHANNEL:      return cooldownScope.genKey(name,event.getChannel().getIdLong());
-            case SHARD:        return event.getJDA().getShardInfo()!= JDA.ShardInfo.SINGLE ? cooldownScope.genKey(name, event.getJDA().getShardInfo().getShardId()) :
+            case CHANNEL:      return scope.genKey(name,event.getChannel().getIdLong());
+            case SHARD:        return event.getJDA().getShardInfo()!= JDA.ShardInfo.SINGLE ? scope.genKey(name, event.getJDA().getShardInfo().getShardId()) :
                 CooldownScope.GLOBAL.genKey(name, 0);
-            case USER_SHARD:   return event.getJDA().getShardInfo()!= JDA.ShardInfo.SINGLE ? cooldownScope.genKey(name,event.getAuthor().getIdLong(),event.getJDA().getShardInfo().getShardId()) :
+            case USER_SHARD:   return event.getJDA().getShardInfo()!= JDA.ShardInfo.SINGLE ? scope.genKey(name,event.getAuthor().getIdLong(),event.getJDA().getShardInfo().getShardId()) :
                 CooldownScope.USER.genKey(name, event.getAuthor().getIdLong());
-            case GLOBAL:       return cooldownScope.genKey(name, 0);
+            case GLOBAL:       return scope.genKey(name, 0);
             default:           return "";
         }
     }
 
+    // Same as getCooldownKey, without building the key
+    private int tryApplyCooldown(CommandEvent event)
+    {
+        CommandClient client = event.getClient();
+        long user = event.getAuthor().getIdLong();
+        long channel = event.getChannel().getIdLong();
+        JDA.ShardInfo shard = event.getJDA().getShardInfo();
+        switch (cooldownScope)
+        {
+            case USER:         return tryApplyCooldown(client, name, cooldownScope, user, -1);
+            case USER_GUILD:   return event.getGuild()!=null ? tryApplyCooldown(client, name, cooldownScope, user, event.getGuild().getIdLong()) :
+                tryApplyCooldown(client, name, CooldownScope.USER_CHANNEL, user, channel);
+            case USER_CHANNEL: return tryApplyCooldown(client, name, cooldownScope, user, channel);
+            case GUILD:        return event.getGuild()!=null ? tryApplyCooldown(client, name, cooldownScope, event.getGuild().getIdLong(), -1) :
+                tryApplyCooldown(client, name, CooldownScope.CHANNEL, channel, -1);
+            case CHANNEL:      return tryApplyCooldown(client, name, cooldownScope, channel, -1);
+            case SHARD:        return shard!= JDA.ShardInfo.SINGLE ? tryApplyCooldown(client, name, cooldownScope, shard.getShardId(), -1) :
+                tryApplyCooldown(client, name, CooldownScope.GLOBAL, 0, -1);
+            case USER_SHARD:   return shard!= JDA.ShardInfo.SINGLE ? tryApplyCooldown(client, name, cooldownScope, user, shard.getShardId()) :
+                tryApplyCooldown(client, name, CooldownScope.USER, user, -1);
+            case GLOBAL:       return tryApplyCooldown(client, name, cooldownScope, 0, -1);
+            default:           return client.tryApplyCooldown("", cooldown);
+        }
+    }
+
     /**
      * Gets an error message for this Command under the provided
      * {@link com.jagrosh.jdautilities.command.CommandEvent CommanEvent}.
@@ -538,6 +620,50 @@ public abstract class Command extends Interaction
             return front+" "+cooldownScope.errorSpecification+"!";
     }
 
+    /**
+     * An index of the children of a Command by their names and aliases, ignoring case the same way
+     * as {@link #isCommandFor(String)}, optionally grouped by the name of their subcommand group.
+     * <br>Children earlier in the array take precedence, the same as when checking them one by one.
+     */
+    static final class ChildIndex<C extends Command>
+    {
+        // Children that match input differently have to be checked one by one
+        private static final ClassValue<Boolean> CUSTOM_MATCHING = overrides(Command.class, "isCommandFor", String.class);
+
+        final C[] children;
+        final boolean customMatching;
+        // Ungrouped children, and the children of each group
+        private final Map<String, C> byName;
+        private final Map<String, Map<String, C>> byGroup;
+
+        ChildIndex(C[] children, Function<C, String> groupOf)
+        {
+            this.children = children;
+            Map<String, C> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            Map<String, Map<String, C>> byGroup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            boolean customMatching = false;
+            for(C child : children)
+            {
+                String group = groupOf == null ? null : groupOf.apply(child);
+                Map<String, C> names = group == null
+                    ? byName : byGroup.computeIfAbsent(group, g -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+                names.putIfAbsent(child.getName(), child);
+                for(String alias : child.getAliases())
+                    names.putIfAbsent(alias, child);
+                customMatching |= CUSTOM_MATCHING.get(child.getClass());
+            }
+            this.byName = byName;
+            this.byGroup = byGroup;
+            this.customMatching = customMatching;
+        }
+
+        C get(String group, String name)
+        {
+            Map<String, C> names = group == null ? byName : byGroup.get(group);
+            return names == null ? null : names.get(name);
+        }
+    }
+
     /**
      * To be used in {@link com.jagrosh.jdautilities.command.Command Command}s as a means of
      * organizing commands into "Categories" as well as terminate command usage when the calling
@@ -412,11 +412,120 @@ public interface CommandClient
      */
     void applyCooldown(String name, int seconds);
 
+    /**
+     * Applies the specified cooldown with the provided name, unless it is already applied,
+     * in a single step.
+     *
+     * <p>Unlike calling {@link #getRemainingCooldown(String)} followed by {@link #applyCooldown(String, int)},
+     * only one of several concurrent calls for the same name can apply the cooldown.
+     *
+     * <p>The default implementation is <b>not</b> atomic, it calls {@link #getRemainingCooldown(String)}
+     * followed by {@link #applyCooldown(String, int)}. Implementations should override it if they can
+     * check and apply a cooldown atomically.
+     *
+     * @param  name
+     *         The cooldown name
+     * @param  seconds
+     *         The time to make the cooldown last
+     *
+     * @return {@code 0} if the cooldown was applied, or the number of seconds remaining on the existing cooldown
+     */
+    default int tryApplyCooldown(String name, int seconds)
+    {
+        int remaining = getRemainingCooldown(name);
+        if(remaining > 0)
+            return remaining;
+        applyCooldown(name, seconds);
+        return 0;
+    }
+
     /**
      * Cleans up expired cooldowns to reduce memory.
      */
     void cleanCooldowns();
 
+    /**
+     * Gets the {@link com.jagrosh.jdautilities.command.CooldownStore CooldownStore} this
+     * CommandClient keeps its cooldowns in.
+     *
+     * <p>The default implementation returns a CooldownStore backed by the cooldown methods of this
+     * CommandClient, so cooldowns keep working for implementations that don't keep a CooldownStore.
+     * Cooldowns are only kept to the second that way, and {@link CooldownStore#size()} always
+     * returns {@code 0}.
+     *
+     * @return The CooldownStore
+     */
+    default CooldownStore getCooldownStore()
+    {
+        return new CooldownStore()
+        {
+            @Override
+            public long getExpiration(String key)
+            {
+                OffsetDateTime expiration = getCooldown(key);
+                if(expiration == null)
+                    return 0;
+                long millis = expiration.toInstant().toEpochMilli();
+                return millis > System.currentTimeMillis() ? millis : 0;
+            }
+
+            @Override
+            public void setExpiration(String key, long expiration)
+            {
+                long remaining = expiration - System.currentTimeMillis();
+                applyCooldown(key, remaining <= 0 ? 0 : (int) Math.min((remaining + 999) / 1000, Integer.MAX_VALUE));
+            }
+
+            @Override
+            public long tryAcquire(String key, long now, long expiration)
+            {
+                long duration = expiration - now;
+                int remaining = tryApplyCooldown(key, duration <= 0 ? 0 : (int) Math.min((duration + 999) / 1000, Integer.MAX_VALUE));
+                return remaining == 0 ? 0 : now + remaining * 1000L;
+            }
+
+            @Override
+            public void remove(String key)
+            {
+                applyCooldown(key, 0);
+            }
+
+            @Override
+            public int size()
+            {
+                return 0;
+            }
+
+            @Override
+            public void evictExpired()
+            {
+                cleanCooldowns();
+            }
+        };
+    }
+
+    /**
+     * Gets the {@link com.jagrosh.jdautilities.command.CommandMetrics CommandMetrics} this
+     * CommandClient reports to.
+     *
+     * @return The CommandMetrics, or {@link CommandMetrics#NONE} if none were set
+     */
+    default CommandMetrics getCommandMetrics()
+    {
+        return CommandMetrics.NONE;
+    }
+
+    /**
+     * Gets the {@link com.jagrosh.jdautilities.command.CommandTracer CommandTracer} this
+     * CommandClient reports the stages of handling commands to.
+     *
+     * @return The CommandTracer, or {@link CommandTracer#NONE} if none was set
+     */
+    default CommandTracer getCommandTracer()
+    {
+        return CommandTracer.NONE;
+    }
+
     /**
      * Gets the number of uses for the provide {@link com.jagrosh.jdautilities.command.Command Command}
      * during this session, or {@code 0} if the command is not registered to this CommandClient.
@@ -445,6 +554,45 @@ public interface CommandClient
      */
     int getCommandUses(String name);
 
+    /**
+     * Gets the number of uses for the provide {@link com.jagrosh.jdautilities.command.Command Command}
+     * during this session, or {@code 0} if the command is not registered to this CommandClient.
+     *
+     * <p>Unlike {@link #getCommandUses(Command)}, this won't be capped at {@link Integer#MAX_VALUE}
+     * on long running bots.
+     *
+     * <p>The default implementation returns {@link #getCommandUses(Command)}, implementations
+     * should override it if they count uses in a {@code long}.
+     *
+     * @param  command
+     *         The Command
+     *
+     * @return The number of uses for the Command
+     */
+    default long getCommandUseCount(Command command)
+    {
+        return getCommandUses(command);
+    }
+
+    /**
+     * Gets the number of uses for a {@link com.jagrosh.jdautilities.command.Command Command}
+     * during this session matching the provided String name, or {@code 0} if there is no Command
+     * with the name.
+     *
+     * <p>The same notes apply as for {@link #getCommandUses(String)}, except that this won't be
+     * capped at {@link Integer#MAX_VALUE} on long running bots. The default implementation returns
+     * {@link #getCommandUses(String)}, implementations should override it if they count uses in a {@code long}.
+     *
+     * @param  name
+     *         The name of the Command
+     *
+     * @return The number of uses for the Command, or {@code 0} if the name does not match with a Command
+     */
+    default long getCommandUseCount(String name)
+    {
+        return getCommandUses(name);
+    }
+
     /**
      * Gets the ID of the owner of this bot as a String.
      *
@@ -23,6 +23,7 @@ import java.util.function.Consumer;
 
 import com.jagrosh.jdautilities.command.impl.AnnotatedModuleCompilerImpl;
 import com.jagrosh.jdautilities.command.impl.CommandClientImpl;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Function;
 
@@ -72,6 +73,13 @@ public class CommandClientBuilder
     private int linkedCacheSize = 0;
     private AnnotatedModuleCompiler compiler = new AnnotatedModuleCompilerImpl();
     private GuildSettingsManager manager = null;
+    private Executor commandExecutor = null;
+    private int maxPendingCommands = 0;
+    private CommandOrdering commandOrdering = CommandOrdering.NONE;
+    private CooldownStore cooldownStore = null;
+    private CooldownBackend cooldownBackend = null;
+    private CommandMetrics commandMetrics = CommandMetrics.NONE;
+    private CommandTracer commandTracer = CommandTracer.NONE;
 
     /**
      * Builds a {@link com.jagrosh.jdautilities.command.impl.CommandClientImpl CommandClientImpl}
@@ -85,7 +93,9 @@ public class CommandClientBuilder
     {
         CommandClient client = new CommandClientImpl(ownerId, coOwnerIds, prefix, altprefix, prefixes, prefixFunction, commandPreProcessFunction, commandPreProcessBiFunction, activity, status, serverInvite,
                                                      success, warning, error, carbonKey, botsKey, new ArrayList<>(commands), new ArrayList<>(slashCommands), new ArrayList<>(contextMenus), forcedGuildId, manualUpsert, useHelp,
-                                                     shutdownAutomatically, helpConsumer, helpWord, executor, linkedCacheSize, compiler, manager);
+                                                     shutdownAutomatically, helpConsumer, helpWord, executor, linkedCacheSize, compiler, manager,
+                                                     commandExecutor, maxPendingCommands, commandOrdering, cooldownStore, cooldownBackend,
+                                                     commandMetrics, commandTracer);
         if(listener!=null)
             client.setListener(listener);
         return client;
@@ -698,6 +708,144 @@ public class CommandClientBuilder
         return this;
     }
 
+    /**
+     * Sets the {@link java.util.concurrent.Executor Executor} that Commands, SlashCommands, and ContextMenus
+     * are run on by the {@link com.jagrosh.jdautilities.command.impl.CommandClientImpl CommandClientImpl}.
+     *
+     * <p>By default, commands are run on the JDA event thread that received them, meaning one slow command
+     * holds up every other event of that shard. When a command executor is set, finding the command still
+     * happens on the event thread, but running it (including all of its checks) is handed off to the executor.
+     * <br>This can be any Executor, such as a bounded thread pool or one that creates a virtual thread per task.
+     * Its lifecycle is managed by the developer, the client will not shut it down.
+     *
+     * <p>Commands the executor rejects are reported to the {@link CommandListener CommandListener}
+     * through {@link CommandListener#onRejectedCommand(CommandEvent, Command) onRejectedCommand} and its
+     * equivalents, see also {@link #setMaxPendingCommands(int)}.
+     *
+     * @param  commandExecutor
+     *         The Executor to run commands on, or {@code null} to run them on the event thread.
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setCommandExecutor(Executor commandExecutor)
+    {
+        this.commandExecutor = commandExecutor;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of commands that can be pending on the
+     * {@link #setCommandExecutor(Executor) command executor} at once, counting both those waiting
+     * to run and those running.
+     * <br>Commands triggered while this many are pending are rejected rather than queued.
+     *
+     * <p>Setting {@code 0} or negative will not limit the number of pending commands, and this has no
+     * effect if no command executor is set.
+     *
+     * @param  maxPendingCommands
+     *         The maximum number of pending commands, or {@code <1} for no limit.
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setMaxPendingCommands(int maxPendingCommands)
+    {
+        this.maxPendingCommands = maxPendingCommands;
+        return this;
+    }
+
+    /**
+     * Sets the {@link CommandOrdering CommandOrdering} used when running commands on the
+     * {@link #setCommandExecutor(Executor) command executor}.
+     * <br>Commands sharing the same key are run one after the other, in the order they were received,
+     * while commands with different keys still run in parallel.
+     *
+     * <p>Default {@link CommandOrdering#NONE}, and this has no effect if no command executor is set,
+     * as commands run on the event thread are already ordered.
+     *
+     * @param  commandOrdering
+     *         The CommandOrdering to run commands with, or {@code null} for {@link CommandOrdering#NONE}
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setCommandOrdering(CommandOrdering commandOrdering)
+    {
+        this.commandOrdering = commandOrdering == null ? CommandOrdering.NONE : commandOrdering;
+        return this;
+    }
+
+    /**
+     * Sets the {@link CooldownStore CooldownStore} for the CommandClientImpl to keep cooldowns in.
+     *
+     * <p>By default, a {@link com.jagrosh.jdautilities.command.impl.CooldownStoreImpl CooldownStoreImpl}
+     * is used, which evicts expired cooldowns on the {@link #setScheduleExecutor(ScheduledExecutorService)
+     * schedule executor}.
+     *
+     * @param  cooldownStore
+     *         The CooldownStore to use, or {@code null} for the default
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setCooldownStore(CooldownStore cooldownStore)
+    {
+        this.cooldownStore = cooldownStore;
+        return this;
+    }
+
+    /**
+     * Sets the {@link CooldownBackend CooldownBackend} for the CommandClientImpl to share cooldowns through,
+     * for bots running their shards across multiple processes.
+     *
+     * <p>Cooldowns are then kept in a {@link com.jagrosh.jdautilities.command.impl.BackendCooldownStore
+     * BackendCooldownStore}, which caches them locally and falls back to the cache if the backend is slow.
+     * <br>This has no effect if a {@link #setCooldownStore(CooldownStore) CooldownStore} is set.
+     *
+     * @param  cooldownBackend
+     *         The CooldownBackend to use, or {@code null} to keep cooldowns local
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setCooldownBackend(CooldownBackend cooldownBackend)
+    {
+        this.cooldownBackend = cooldownBackend;
+        return this;
+    }
+
+    /**
+     * Sets the {@link CommandMetrics CommandMetrics} that Commands, SlashCommands and ContextMenus
+     * report their latencies and outcomes to.
+     *
+     * <p>Use a {@link com.jagrosh.jdautilities.command.impl.CommandMetricsRecorder CommandMetricsRecorder}
+     * to keep latency histograms and counters per command, or a custom implementation to bridge
+     * them to another metrics system.
+     *
+     * @param  commandMetrics
+     *         The CommandMetrics to use, or {@code null} to not report any
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setCommandMetrics(CommandMetrics commandMetrics)
+    {
+        this.commandMetrics = commandMetrics == null ? CommandMetrics.NONE : commandMetrics;
+        return this;
+    }
+
+    /**
+     * Sets the {@link CommandTracer CommandTracer} that the time spent in each stage of handling
+     * a command is reported to, from parsing the message to executing the command.
+     *
+     * <p>Stages are only timed while a CommandTracer is set, so this costs nothing when left unset.
+     *
+     * @param  commandTracer
+     *         The CommandTracer to use, or {@code null} to not time any stages
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setCommandTracer(CommandTracer commandTracer)
+    {
+        this.commandTracer = commandTracer == null ? CommandTracer.NONE : commandTracer;
+        return this;
+    }
+
     /**
      * Sets the {@link com.jagrosh.jdautilities.command.GuildSettingsManager GuildSettingsManager}
      * for the CommandClientImpl built using this builder.
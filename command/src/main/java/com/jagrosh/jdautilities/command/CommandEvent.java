@@ -58,6 +58,9 @@ public class CommandEvent
     private final String prefix;
     private String args;
     private final CommandClient client;
+
+    // When the interaction started running, for the CommandMetrics
+    long runStart;
     
     /**
      * Constructor for a CommandEvent.
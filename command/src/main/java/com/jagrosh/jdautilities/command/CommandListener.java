@@ -138,6 +138,50 @@ public interface CommandListener {
      */
     default void onTerminatedUserContextMenu(UserContextMenuEvent event, UserContextMenu menu) {}
 
+    /**
+     * Called when a {@link Command} is rejected by the
+     * {@link CommandClientBuilder#setCommandExecutor(java.util.concurrent.Executor) command executor},
+     * either because too many commands are already pending or because the executor itself refused it.
+     *
+     * <p>The Command has been triggered, but will not run.
+     *
+     * @param event   The CommandEvent that triggered the Command
+     * @param command The Command that was rejected
+     */
+    default void onRejectedCommand(CommandEvent event, Command command) {}
+
+    /**
+     * Called when a {@link SlashCommand} is rejected by the
+     * {@link CommandClientBuilder#setCommandExecutor(java.util.concurrent.Executor) command executor},
+     * either because too many commands are already pending or because the executor itself refused it.
+     *
+     * <p>The SlashCommand has been triggered, but will not run.
+     *
+     * @param event   The SlashCommandEvent that triggered the Command
+     * @param command The SlashCommand that was rejected
+     */
+    default void onRejectedSlashCommand(SlashCommandEvent event, SlashCommand command) {}
+
+    /**
+     * Called when a {@link MessageContextMenu} is rejected by the
+     * {@link CommandClientBuilder#setCommandExecutor(java.util.concurrent.Executor) command executor},
+     * either because too many commands are already pending or because the executor itself refused it.
+     *
+     * @param event The MessageContextMenuEvent that triggered the Menu
+     * @param menu  The MessageContextMenu that was rejected
+     */
+    default void onRejectedMessageContextMenu(MessageContextMenuEvent event, MessageContextMenu menu) {}
+
+    /**
+     * Called when a {@link UserContextMenu} is rejected by the
+     * {@link CommandClientBuilder#setCommandExecutor(java.util.concurrent.Executor) command executor},
+     * either because too many commands are already pending or because the executor itself refused it.
+     *
+     * @param event The UserContextMenuEvent that triggered the Menu
+     * @param menu  The UserContextMenu that was rejected
+     */
+    default void onRejectedUserContextMenu(UserContextMenuEvent event, UserContextMenu menu) {}
+
     /**
      * Called when a {@link MessageReceivedEvent} is caught by the Client Listener's but doesn't correspond to a {@link Command}.
      *
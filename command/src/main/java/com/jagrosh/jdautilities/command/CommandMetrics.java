@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command;
+
+/**
+ * Receives measurements from the {@link Command Commands}, {@link SlashCommand SlashCommands} and
+ * {@link ContextMenu ContextMenus} of a {@link CommandClient CommandClient}, so they can be bridged
+ * to whatever metrics system a bot uses.
+ *
+ * <p>Every method has a no-op default implementation, so implementations only need to override
+ * what they are interested in. Methods are called every time an interaction is run, often from
+ * several threads at once, so they should be thread-safe and return quickly.
+ * <br>Timings are reported as single measurements in nanoseconds, from when the interaction started running,
+ * including all of its checks, until it was terminated, threw or completed.
+ *
+ * <p>{@link com.jagrosh.jdautilities.command.impl.CommandMetricsRecorder CommandMetricsRecorder} aggregates these
+ * into latency histograms and counters per interaction, which can be pulled for a report or an endpoint.
+ *
+ * @see    CommandClientBuilder#setCommandMetrics(CommandMetrics)
+ */
+public interface CommandMetrics
+{
+    /**
+     * CommandMetrics that ignore every measurement, used by default.
+     */
+    CommandMetrics NONE = new CommandMetrics() {};
+
+    /**
+     * Called when an interaction completes without throwing.
+     *
+     * @param  interaction
+     *         The Command, SlashCommand or ContextMenu
+     * @param  nanos
+     *         How long the interaction ran for, in nanoseconds.
+     */
+    default void recordCompletion(Interaction interaction, long nanos) {}
+
+    /**
+     * Called when an interaction is terminated by one of its checks, such as a missing permission,
+     * a cooldown or a rate limit.
+     *
+     * @param  interaction
+     *         The Command, SlashCommand or ContextMenu
+     * @param  nanos
+     *         How long the interaction ran for before it was terminated, in nanoseconds.
+     */
+    default void recordTermination(Interaction interaction, long nanos) {}
+
+    /**
+     * Called when an interaction throws while executing.
+     *
+     * @param  interaction
+     *         The Command, SlashCommand or ContextMenu
+     * @param  throwable
+     *         What was thrown
+     * @param  nanos
+     *         How long the interaction ran for before it threw, in nanoseconds.
+     */
+    default void recordException(Interaction interaction, Throwable throwable, long nanos) {}
+
+    /**
+     * Called when an interaction isn't run at all, because the
+     * {@link CommandClientBuilder#setCommandExecutor(java.util.concurrent.Executor) command executor} rejected it.
+     *
+     * @param  interaction
+     *         The Command, SlashCommand or ContextMenu
+     */
+    default void recordRejection(Interaction interaction) {}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command;
+
+/**
+ * The order in which a {@link CommandClient CommandClient} with a
+ * {@link CommandClientBuilder#setCommandExecutor(java.util.concurrent.Executor) command executor}
+ * runs the commands, slash commands and context menus it receives.
+ *
+ * <p>Everything sharing the same key (IE: the same Guild for {@link #GUILD}) is run one after the other,
+ * in the order it was received, while everything with different keys may run in parallel.
+ * <br>This keeps, for example, two quick {@code !queue add} commands in the same Guild from racing each other.
+ *
+ * <p>Like with {@link CooldownScope CooldownScope}, {@link #GUILD} defaults to {@link #CHANNEL} when
+ * used outside of a {@link net.dv8tion.jda.api.entities.Guild Guild}.
+ *
+ * @see CommandClientBuilder#setCommandOrdering(CommandOrdering)
+ */
+public enum CommandOrdering
+{
+    /**
+     * No ordering, everything is handed to the command executor right away. This is the default.
+     */
+    NONE,
+
+    /**
+     * Runs everything from the same {@link net.dv8tion.jda.api.entities.Guild Guild} in order.
+     */
+    GUILD,
+
+    /**
+     * Runs everything from the same {@link net.dv8tion.jda.api.entities.channel.middleman.MessageChannel MessageChannel}
+     * in order.
+     */
+    CHANNEL,
+
+    /**
+     * Runs everything from the same {@link net.dv8tion.jda.api.entities.User User} in order.
+     */
+    USER
+}
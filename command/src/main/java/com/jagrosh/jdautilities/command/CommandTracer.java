@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command;
+
+import net.dv8tion.jda.api.events.GenericEvent;
+
+/**
+ * Receives the time spent in each {@link Stage Stage} of handling a command, so slow commands can be
+ * attributed to the part of the pipeline they spend their time in.
+ *
+ * <p>Every invocation is identified by the JDA event it came from, which is the same for all of its stages:
+ * <ul>
+ *     <li>The {@link net.dv8tion.jda.api.events.message.MessageReceivedEvent MessageReceivedEvent} for
+ *     {@link Command Commands}, the same as {@link CommandEvent#getEvent()}.</li>
+ *     <li>The {@link SlashCommandEvent SlashCommandEvent} for {@link SlashCommand SlashCommands}.</li>
+ *     <li>The {@link MessageContextMenuEvent MessageContextMenuEvent} or {@link UserContextMenuEvent UserContextMenuEvent}
+ *     for {@link ContextMenu ContextMenus}.</li>
+ * </ul>
+ *
+ * <p>Stages are only timed while a CommandTracer other than {@link #NONE} is set, so tracing costs nothing
+ * more than a reference check when disabled. Methods are called while handling the command, often from several
+ * threads at once, so they should be thread-safe and return quickly.
+ *
+ * @see    CommandClientBuilder#setCommandTracer(CommandTracer)
+ */
+public interface CommandTracer
+{
+    /**
+     * A CommandTracer that ignores every stage, used by default.
+     */
+    CommandTracer NONE = new CommandTracer() {};
+
+    /**
+     * The stages of handling a command.
+     */
+    enum Stage
+    {
+        /**
+         * Finding the prefix of a message and splitting it into the command name and arguments, including
+         * {@link #SETTINGS} when the prefixes of a Guild are looked up.
+         * <br>This is recorded for every message that is checked, including the ones that aren't commands.
+         */
+        PARSE,
+
+        /**
+         * Getting the settings of a Guild from the {@link GuildSettingsManager GuildSettingsManager},
+         * to look up its prefixes.
+         */
+        SETTINGS,
+
+        /**
+         * Waiting on the {@link CommandClientBuilder#setCommandExecutor(java.util.concurrent.Executor) command executor}
+         * before the command starts running.
+         */
+        QUEUE,
+
+        /**
+         * The owner, context, permission and other checks of the command, except for its cooldown and rate limits.
+         */
+        CHECKS,
+
+        /**
+         * Checking and applying the cooldown and rate limits of the command.
+         */
+        COOLDOWN,
+
+        /**
+         * Executing the command itself, whether or not it throws.
+         */
+        EXECUTE
+    }
+
+    /**
+     * Called when a command has finished a stage.
+     * <br>Stages of a command that is terminated by one of its checks, or rejected by the command executor,
+     * are not recorded past that point.
+     *
+     * @param  event
+     *         The JDA event identifying the invocation
+     * @param  stage
+     *         The stage that was finished
+     * @param  nanos
+     *         How long the stage took, in nanoseconds
+     */
+    default void recordStage(GenericEvent event, Stage stage, long nanos) {}
+}
@@ -77,6 +77,9 @@ public abstract class ContextMenu extends Interaction
      */
     protected boolean forceUserPermissions = false;
 
+    // Context menus that generate their own cooldown keys can't use the primitive ones
+    static final ClassValue<Boolean> CUSTOM_COOLDOWN_KEY = overrides(ContextMenu.class, "getCooldownKey", GenericCommandInteractionEvent.class);
+
     /**
      * Gets the type of context menu.
      *
@@ -101,24 +104,54 @@ public abstract class ContextMenu extends Interaction
      */
     public String getCooldownKey(GenericCommandInteractionEvent event)
     {
-        switch (cooldownScope)
+        return getScopeKey(event, cooldownScope);
+    }
+
+    // Generates the key for the provided scope, used for both cooldowns and rate limits
+    String getScopeKey(GenericCommandInteractionEvent event, CooldownScope scope)
+    {
+        switch (scope)
         {
-            case USER:         return cooldownScope.genKey(name,event.getUser().getIdLong());
-            case USER_GUILD:   return event.getGuild()!=null ? cooldownScope.genKey(name,event.getUser().getIdLong(),event.getGuild().getIdLong()) :
+            case USER:         return scope.genKey(name,event.getUser().getIdLong());
+            case USER_GUILD:   return event.getGuild()!=null ? scope.genKey(name,event.getUser().getIdLong(),event.getGuild().getIdLong()) :
                 CooldownScope.USER_CHANNEL.genKey(name,event.getUser().getIdLong(), event.getChannel().getIdLong());
-            case USER_CHANNEL: return cooldownScope.genKey(name,event.getUser().getIdLong(),event.getChannel().getIdLong());
-            case GUILD:        return event.getGuild()!=null ? cooldownScope.genKey(name,event.getGuild().getIdLong()) :
+            case USER_CHANNEL: return scope.genKey(name,event.getUser().getIdLong(),event.getChannel().getIdLong());
+            case GUILD:        return event.getGuild()!=null ? scope.genKey(name,event.getGuild().getIdLong()) :
                 CooldownScope.CHANNEL.genKey(name,event.getChannel().getIdLong());
-            case CHANNEL:      return cooldownScope.genKey(name,event.getChannel().getIdLong());
-            case SHARD:        return event.getJDA().getShardInfo() != JDA.ShardInfo.SINGLE ? cooldownScope.genKey(name, event.getJDA().getShardInfo().getShardId()) :
+            case CHANNEL:      return scope.genKey(name,event.getChannel().getIdLong());
+            case SHARD:        return event.getJDA().getShardInfo() != JDA.ShardInfo.SINGLE ? scope.genKey(name, event.getJDA().getShardInfo().getShardId()) :
                 CooldownScope.GLOBAL.genKey(name, 0);
-            case USER_SHARD:   return event.getJDA().getShardInfo() != JDA.ShardInfo.SINGLE ? cooldownScope.genKey(name,event.getUser().getIdLong(),event.getJDA().getShardInfo().getShardId()) :
+            case USER_SHARD:   return event.getJDA().getShardInfo() != JDA.ShardInfo.SINGLE ? scope.genKey(name,event.getUser().getIdLong(),event.getJDA().getShardInfo().getShardId()) :
                 CooldownScope.USER.genKey(name, event.getUser().getIdLong());
-            case GLOBAL:       return cooldownScope.genKey(name, 0);
+            case GLOBAL:       return scope.genKey(name, 0);
             default:           return "";
         }
     }
 
+    // Same as getCooldownKey, without building the key
+    int tryApplyCooldown(GenericCommandInteractionEvent event, CommandClient client)
+    {
+        long user = event.getUser().getIdLong();
+        long channel = event.getChannelIdLong();
+        JDA.ShardInfo shard = event.getJDA().getShardInfo();
+        switch (cooldownScope)
+        {
+            case USER:         return tryApplyCooldown(client, name, cooldownScope, user, -1);
+            case USER_GUILD:   return event.getGuild()!=null ? tryApplyCooldown(client, name, cooldownScope, user, event.getGuild().getIdLong()) :
+                tryApplyCooldown(client, name, CooldownScope.USER_CHANNEL, user, channel);
+            case USER_CHANNEL: return tryApplyCooldown(client, name, cooldownScope, user, channel);
+            case GUILD:        return event.getGuild()!=null ? tryApplyCooldown(client, name, cooldownScope, event.getGuild().getIdLong(), -1) :
+                tryApplyCooldown(client, name, CooldownScope.CHANNEL, channel, -1);
+            case CHANNEL:      return tryApplyCooldown(client, name, cooldownScope, channel, -1);
+            case SHARD:        return shard != JDA.ShardInfo.SINGLE ? tryApplyCooldown(client, name, cooldownScope, shard.getShardId(), -1) :
+                tryApplyCooldown(client, name, CooldownScope.GLOBAL, 0, -1);
+            case USER_SHARD:   return shard != JDA.ShardInfo.SINGLE ? tryApplyCooldown(client, name, cooldownScope, user, shard.getShardId()) :
+                tryApplyCooldown(client, name, CooldownScope.USER, user, -1);
+            case GLOBAL:       return tryApplyCooldown(client, name, cooldownScope, 0, -1);
+            default:           return client.tryApplyCooldown("", cooldown);
+        }
+    }
+
     /**
      * Gets an error message for this Context Menu under the provided {@link GenericCommandInteractionEvent}.
      *
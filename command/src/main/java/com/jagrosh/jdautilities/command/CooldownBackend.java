@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A backend for sharing cooldowns between several processes, such as the clusters of a bot that
+ * runs its shards across multiple JVMs.
+ *
+ * <p>Every call is asynchronous and made for a batch of keys at once, so that implementations talking to
+ * a remote service can do so in a single round trip. Cooldowns are stored as the time they expire in epoch
+ * milliseconds, like with a {@link CooldownStore CooldownStore}.
+ *
+ * <p>A backend is not used directly, but through a
+ * {@link com.jagrosh.jdautilities.command.impl.BackendCooldownStore BackendCooldownStore}, which keeps a local
+ * cache in front of it. One can be set up through {@link CommandClientBuilder#setCooldownBackend(CooldownBackend)}.
+ *
+ * <p>Included are {@link com.jagrosh.jdautilities.command.impl.InMemoryCooldownBackend InMemoryCooldownBackend},
+ * a reference implementation within a single process, and
+ * {@link com.jagrosh.jdautilities.command.impl.FileCooldownBackend FileCooldownBackend}, which shares
+ * cooldowns between processes on the same machine through a file.
+ *
+ * @implNote
+ *         If in the future it is decided to add a method to this interface, the method
+ *         will have a default implementation that doesn't require developer additions.
+ */
+public interface CooldownBackend
+{
+    /**
+     * Sets the expiration of each key that doesn't have a cooldown which hasn't expired yet.
+     *
+     * <p>Each key must be acquired atomically, such that of any number of processes trying to acquire
+     * the same key, only one succeeds. Keys are acquired in order, so if the same key is in the batch
+     * more than once, only its first occurrence may succeed.
+     *
+     * @param  keys
+     *         The cooldown keys
+     * @param  expirations
+     *         The expiration time of each key in epoch milliseconds, if acquired
+     * @param  now
+     *         The current time in epoch milliseconds
+     *
+     * @return A CompletableFuture with, for each key, {@code 0} if it was acquired, or the time its
+     *         existing cooldown expires in epoch milliseconds
+     */
+    CompletableFuture<long[]> acquire(String[] keys, long[] expirations, long now);
+
+    /**
+     * Removes the cooldowns of the keys, if any.
+     *
+     * @param  keys
+     *         The cooldown keys
+     *
+     * @return A CompletableFuture completed once the cooldowns are removed
+     */
+    CompletableFuture<Void> release(String[] keys);
+
+    /**
+     * Gets the expiration of the keys.
+     *
+     * @param  keys
+     *         The cooldown keys
+     * @param  now
+     *         The current time in epoch milliseconds
+     *
+     * @return A CompletableFuture with, for each key, the time its cooldown expires in epoch milliseconds,
+     *         or {@code 0} if there is none or it has expired
+     */
+    CompletableFuture<long[]> fetch(String[] keys, long now);
+
+    /**
+     * Called when the {@link CommandClient CommandClient} using this backend is shut down.
+     *
+     * <p>Developers should implement this method to free up or close resources held by the backend.
+     */
+    default void shutdown() {}
+}
@@ -157,11 +157,14 @@ public enum CooldownScope
     GLOBAL("Global", "globally");
 
     private final String format;
+    // The format split around its IDs, so keys can be built without parsing the format every time
+    private final String[] parts;
     final String errorSpecification;
 
     CooldownScope(String format, String errorSpecification)
     {
         this.format = format;
+        this.parts = format.split("%d", -1);
         this.errorSpecification = errorSpecification;
     }
 
@@ -175,7 +178,7 @@ public enum CooldownScope
         if(this.equals(GLOBAL))
             return name+"|"+format;
         else if(idTwo==-1)
-            return name+"|"+String.format(format,idOne);
-        else return name+"|"+String.format(format,idOne,idTwo);
+            return name+"|"+parts[0]+idOne+parts[1];
+        else return name+"|"+parts[0]+idOne+parts[1]+idTwo+parts[2];
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command;
+
+/**
+ * Storage for the cooldowns of a {@link CommandClient CommandClient}, keyed by the
+ * cooldown keys generated for {@link CooldownScope CooldownScopes}.
+ *
+ * <p>Cooldowns are stored as the time they expire in epoch milliseconds, as returned by
+ * {@link System#currentTimeMillis()}. Implementations are called from every shard's event thread
+ * (or the command executor), and must be safe for concurrent use.
+ *
+ * <p>The default implementation is {@link com.jagrosh.jdautilities.command.impl.CooldownStoreImpl CooldownStoreImpl},
+ * a custom one can be provided through {@link CommandClientBuilder#setCooldownStore(CooldownStore)}.
+ *
+ * @implNote
+ *         If in the future it is decided to add a method to this interface, the method
+ *         will have a default implementation that doesn't require developer additions.
+ */
+public interface CooldownStore
+{
+    /**
+     * Gets the time the cooldown with the provided key expires.
+     *
+     * @param  key
+     *         The cooldown key
+     *
+     * @return The expiration time in epoch milliseconds, or {@code 0} if there
+     *         is no cooldown for the key or it has already expired
+     */
+    long getExpiration(String key);
+
+    /**
+     * Sets the time the cooldown with the provided key expires, replacing any existing cooldown for the key.
+     *
+     * @param  key
+     *         The cooldown key
+     * @param  expiration
+     *         The expiration time in epoch milliseconds
+     */
+    void setExpiration(String key, long expiration);
+
+    /**
+     * Sets the time the cooldown with the provided key expires, unless there already is a cooldown
+     * for the key that hasn't expired yet, in a single step.
+     *
+     * <p>Of any number of concurrent calls for the same key, only one may acquire the cooldown.
+     * The default implementation is <b>not</b> atomic, implementations should override it if they
+     * can check and set a cooldown atomically.
+     *
+     * @param  key
+     *         The cooldown key
+     * @param  now
+     *         The current time in epoch milliseconds
+     * @param  expiration
+     *         The expiration time in epoch milliseconds, if acquired
+     *
+     * @return {@code 0} if the cooldown was acquired, or the time the existing cooldown
+     *         expires in epoch milliseconds
+     */
+    default long tryAcquire(String key, long now, long expiration)
+    {
+        long current = getExpiration(key);
+        if(current > now)
+            return current;
+        setExpiration(key, expiration);
+        return 0;
+    }
+
+    /**
+     * Acquires the cooldown of a command the same way as {@link #tryAcquire(String, long, long)}, but with the
+     * cooldown key given as its parts instead of a String. This is what commands use for their built-in cooldowns,
+     * unless they override how their cooldown key is generated.
+     *
+     * <p>The default implementation generates the same String key as {@link Command#getCooldownKey(CommandEvent)}
+     * and delegates to {@link #tryAcquire(String, long, long)}. Implementations may instead store these
+     * cooldowns under a primitive key to avoid building a String for every command, but must then resolve
+     * the generated String key to the same cooldown in the String keyed methods.
+     *
+     * @param  name
+     *         The name of the command
+     * @param  scope
+     *         The CooldownScope of the cooldown, after falling back for the location the command was used in
+     * @param  idOne
+     *         The first ID of the cooldown key, or {@code 0} for {@link CooldownScope#GLOBAL}
+     * @param  idTwo
+     *         The second ID of the cooldown key, or {@code -1} if the scope only uses one
+     * @param  now
+     *         The current time in epoch milliseconds
+     * @param  expiration
+     *         The expiration time in epoch milliseconds, if acquired
+     *
+     * @return {@code 0} if the cooldown was acquired, or the time the existing cooldown
+     *         expires in epoch milliseconds
+     */
+    default long tryAcquire(String name, CooldownScope scope, long idOne, long idTwo, long now, long expiration)
+    {
+        return tryAcquire(scope.genKey(name, idOne, idTwo), now, expiration);
+    }
+
+    /**
+     * Removes the cooldown with the provided key, if any.
+     *
+     * @param  key
+     *         The cooldown key
+     */
+    void remove(String key);
+
+    /**
+     * Gets the number of cooldowns stored, including expired cooldowns that have not been evicted yet.
+     *
+     * @return The number of cooldowns stored
+     */
+    int size();
+
+    /**
+     * Removes all expired cooldowns.
+     *
+     * <p>This is called by {@link CommandClient#cleanCooldowns()}, implementations that evict
+     * expired cooldowns on their own may not need to do anything here.
+     */
+    void evictExpired();
+
+    /**
+     * Called when the {@link CommandClient CommandClient} is shut down.
+     *
+     * <p>Developers should implement this method to free up or close resources held by the store.
+     */
+    default void shutdown() {}
+}
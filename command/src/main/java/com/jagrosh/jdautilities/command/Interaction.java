@@ -16,7 +16,12 @@
 package com.jagrosh.jdautilities.command;
 
 import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.GuildVoiceState;
+import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
 import net.dv8tion.jda.api.interactions.InteractionContextType;
 
 import java.util.Arrays;
@@ -78,6 +83,12 @@ public abstract class Interaction
      */
     protected CooldownScope cooldownScope = CooldownScope.USER;
 
+    /**
+     * The {@link RateLimit RateLimits} of the interaction, checked after the {@link #cooldown cooldown}.
+     * <br>Default empty, meaning no rate limits.
+     */
+    protected RateLimit[] rateLimits = new RateLimit[0];
+
     /**
      * The interaction context of this command.
      */
@@ -102,6 +113,13 @@ public abstract class Interaction
      */
     protected boolean nsfwOnly = false;
 
+    // We can ignore these bot permissions for interactions because bots can reply with embeds even without either of them.
+    // The only thing stopping them is the user's ability to use Application Commands.
+    // It's extremely dumb, but what more can you do.
+    static final long IGNORED_INTERACTION_BOT_PERMISSIONS = Permission.getRaw(Permission.VIEW_CHANNEL, Permission.MESSAGE_EMBED_LINKS);
+
+    private PermissionMasks permissionMasks;
+
     /**
      * Gets the {@link Interaction#cooldown cooldown} for the Interaction.
      *
@@ -122,6 +140,16 @@ public abstract class Interaction
         return cooldownScope;
     }
 
+    /**
+     * Gets the {@link Interaction#rateLimits rateLimits} for the Interaction.
+     *
+     * @return The rateLimits for the Interaction
+     */
+    public RateLimit[] getRateLimits()
+    {
+        return rateLimits;
+    }
+
     /**
      * Gets the {@link Interaction#userPermissions userPermissions} for the Interaction.
      *
@@ -152,6 +180,131 @@ public abstract class Interaction
         return ownerCommand;
     }
 
+    /**
+     * Applies this Interaction's cooldown under the key made of the provided scope and IDs, unless it is
+     * already applied.
+     *
+     * @return {@code 0} if the cooldown was applied, or the number of seconds remaining on the existing cooldown
+     */
+    int tryApplyCooldown(CommandClient client, String name, CooldownScope scope, long idOne, long idTwo)
+    {
+        long now = System.currentTimeMillis();
+        long expiration = client.getCooldownStore().tryAcquire(name, scope, idOne, idTwo, now, now + cooldown * 1000L);
+        return expiration == 0 ? 0 : (int) ((expiration - now + 999) / 1000);
+    }
+
+    /**
+     * Gets the {@link PermissionMasks PermissionMasks} of this Interaction, computing them again
+     * if the permissions were replaced since.
+     */
+    PermissionMasks getPermissionMasks()
+    {
+        // Racing threads just compute equal masks, which are safe to share since all their fields are final
+        PermissionMasks masks = permissionMasks;
+        if(masks == null || !masks.isFor(userPermissions, botPermissions))
+            permissionMasks = masks = new PermissionMasks(userPermissions, botPermissions);
+        return masks;
+    }
+
+    /**
+     * Checks the {@link #userPermissions userPermissions} of this Interaction for a Member.
+     *
+     * @return The error message for the first missing permission, or {@code null} if none are missing
+     */
+    String checkUserPermissions(Member member, GuildChannel channel, String error)
+    {
+        PermissionMasks masks = getPermissionMasks();
+        long missing = 0;
+        if(masks.userChannel != 0)
+            missing |= masks.userChannel & ~PermissionMasks.getChannelPermissions(member, channel);
+        if(masks.userGuild != 0)
+            missing |= masks.userGuild & ~PermissionMasks.getGuildPermissions(member);
+
+        Permission p = masks.firstMissingUserPermission(missing);
+        if(p == null)
+            return null;
+        return String.format(userMissingPermMessage, error, p.getName(), p.isChannel() ? "channel" : "server");
+    }
+
+    /**
+     * Checks the {@link #botPermissions botPermissions} of this Interaction for the bot, where voice
+     * permissions are checked in the voice channel of the Member using the Interaction.
+     *
+     * @return The error message for the first missing permission, or {@code null} if none are missing
+     */
+    String checkBotPermissions(Guild guild, Member member, GuildChannel channel, String error, long ignored)
+    {
+        PermissionMasks masks = getPermissionMasks();
+        long channelMask = masks.botChannel & ~ignored;
+        long guildMask = masks.botGuild & ~ignored;
+        long voiceMask = masks.botVoice & ~ignored;
+        if((channelMask | guildMask | voiceMask) == 0)
+            return null;
+
+        Member selfMember = guild.getSelfMember();
+        long missing = 0;
+        if(channelMask != 0)
+            missing |= channelMask & ~PermissionMasks.getChannelPermissions(selfMember, channel);
+        if(guildMask != 0)
+            missing |= guildMask & ~PermissionMasks.getGuildPermissions(selfMember);
+        AudioChannel vc = null;
+        if(voiceMask != 0)
+        {
+            GuildVoiceState gvc = member.getVoiceState();
+            vc = gvc == null ? null : gvc.getChannel();
+            missing |= vc == null ? voiceMask : voiceMask & ~PermissionMasks.getChannelPermissions(selfMember, vc);
+        }
+
+        Permission p = masks.firstMissingBotPermission(missing);
+        if(p == null)
+            return null;
+        if((p.getRawValue() & voiceMask) != 0)
+        {
+            if(vc == null)
+                return error+" You must be in a voice channel to use that!";
+            return String.format(botMissingPermMessage, error, p.getName(), "voice channel");
+        }
+        return String.format(botMissingPermMessage, error, p.getName(), p.isChannel() ? "channel" : "server");
+    }
+
+    /**
+     * Creates the error message for a use rejected by the provided rate limit.
+     */
+    static String getRateLimitError(String warning, RateLimit limit, boolean fromGuild, long wait)
+    {
+        CooldownScope scope = limit.getScope();
+        if(scope == CooldownScope.USER_GUILD && !fromGuild)
+            scope = CooldownScope.USER_CHANNEL;
+        else if(scope == CooldownScope.GUILD && !fromGuild)
+            scope = CooldownScope.CHANNEL;
+        String front = warning+" That command has been used too often";
+        if(!scope.errorSpecification.isEmpty())
+            front += " "+scope.errorSpecification;
+        return front+", try again in "+((wait + 999) / 1000)+" more seconds!";
+    }
+
+    /**
+     * Creates a ClassValue telling whether a class overrides the provided method of the base class.
+     */
+    static ClassValue<Boolean> overrides(Class<?> base, String method, Class<?>... parameters)
+    {
+        return new ClassValue<Boolean>()
+        {
+            @Override
+            protected Boolean computeValue(Class<?> type)
+            {
+                try
+                {
+                    return type.getMethod(method, parameters).getDeclaringClass() != base;
+                }
+                catch(NoSuchMethodException e)
+                {
+                    return false;
+                }
+            }
+        };
+    }
+
     /**
      * Returns the installation scope for this interaction.
      *
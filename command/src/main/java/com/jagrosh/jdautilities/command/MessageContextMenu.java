@@ -15,10 +15,6 @@
  */
 package com.jagrosh.jdautilities.command;
 
-import net.dv8tion.jda.api.Permission;
-import net.dv8tion.jda.api.entities.GuildVoiceState;
-import net.dv8tion.jda.api.entities.Member;
-import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
 import net.dv8tion.jda.api.interactions.IntegrationType;
 import net.dv8tion.jda.api.interactions.InteractionContextType;
 import net.dv8tion.jda.api.interactions.commands.DefaultMemberPermissions;
@@ -39,6 +35,10 @@ public abstract class MessageContextMenu extends ContextMenu
      */
     public final void run(MessageContextMenuEvent event)
     {
+        // only time the run when something records it
+        if(event.getClient().getCommandMetrics() != CommandMetrics.NONE || event.getClient().getCommandTracer() != CommandTracer.NONE)
+            event.runStart = System.nanoTime();
+
         // owner check
         if(ownerCommand && !(event.isOwner()))
         {
@@ -46,101 +46,85 @@ public abstract class MessageContextMenu extends ContextMenu
             return;
         }
 
+        CommandTracer tracer = event.getClient().getCommandTracer();
+        CommandMetrics metrics = event.getClient().getCommandMetrics();
+        long cooldownStart = tracer != CommandTracer.NONE ? System.nanoTime() : 0;
+
         // cooldown check, ignoring owner
         if(cooldown>0 && !(event.isOwner()))
         {
-            String key = getCooldownKey(event);
-            int remaining = event.getClient().getRemainingCooldown(key);
+            int remaining = CUSTOM_COOLDOWN_KEY.get(getClass())
+                    ? event.getClient().tryApplyCooldown(getCooldownKey(event), cooldown)
+                    : tryApplyCooldown(event, event.getClient());
             if(remaining>0)
             {
                 terminate(event, getCooldownError(event, remaining, event.getClient()));
                 return;
             }
-            else event.getClient().applyCooldown(key, cooldown);
         }
 
+        // rate limit check, ignoring owner
+        if(rateLimits.length>0 && !(event.isOwner()))
+        {
+            long now = System.currentTimeMillis();
+            for(int i = 0; i < rateLimits.length; i++)
+            {
+                long wait = rateLimits[i].tryAcquire(getScopeKey(event, rateLimits[i].getScope()), now);
+                if(wait>0)
+                {
+                    // give back what this use already took, so a rejected use isn't counted anywhere
+                    for(int j = 0; j < i; j++)
+                        rateLimits[j].refund(getScopeKey(event, rateLimits[j].getScope()), now);
+                    if(cooldown>0)
+                        event.getClient().getCooldownStore().remove(getCooldownKey(event));
+                    terminate(event, getRateLimitError(event.getClient().getWarning(), rateLimits[i], event.getGuild()!=null, wait));
+                    return;
+                }
+            }
+        }
+
+        long cooldownNanos = tracer != CommandTracer.NONE ? System.nanoTime() - cooldownStart : 0;
+
         // availability check
         if(event.isFromGuild())
         {
             //user perms
-            if (forceUserPermissions)
+            // Member will never be null because this is only ran in a server
+            if (forceUserPermissions && event.getMember() != null)
             {
-                for(Permission p: userPermissions)
+                String permissionError = checkUserPermissions(event.getMember(), event.getGuildChannel(), event.getClient().getError());
+                if(permissionError != null)
                 {
-                    // Member will never be null because this is only ran in a server (text channel)
-                    if(event.getMember() == null)
-                        continue;
-
-                    if(p.isChannel())
-                    {
-                        if(!event.getMember().hasPermission(event.getGuildChannel(), p))
-                        {
-                            terminate(event, String.format(userMissingPermMessage, event.getClient().getError(), p.getName(), "channel"));
-                            return;
-                        }
-                    }
-                    else
-                    {
-                        if(!event.getMember().hasPermission(p))
-                        {
-                            terminate(event, String.format(userMissingPermMessage, event.getClient().getError(), p.getName(), "server"));
-                            return;
-                        }
-                    }
+                    terminate(event, permissionError);
+                    return;
                 }
             }
 
             // bot perms
-            for(Permission p: botPermissions)
+            String permissionError = checkBotPermissions(event.getGuild(), event.getMember(), event.getGuildChannel(), event.getClient().getError(), IGNORED_INTERACTION_BOT_PERMISSIONS);
+            if(permissionError != null)
             {
-                // We can ignore this permission because bots can reply with embeds even without either of these perms.
-                // The only thing stopping them is the user's ability to use Application Commands.
-                // It's extremely dumb, but what more can you do.
-                if (p == Permission.VIEW_CHANNEL || p == Permission.MESSAGE_EMBED_LINKS)
-                    continue;
-
-                Member selfMember = event.getGuild() == null ? null : event.getGuild().getSelfMember();
-                if(p.isChannel())
-                {
-                    if(p.name().startsWith("VOICE"))
-                    {
-                        GuildVoiceState gvc = event.getMember().getVoiceState();
-                        AudioChannel vc = gvc == null ? null : gvc.getChannel();
-                        if(vc==null)
-                        {
-                            terminate(event, event.getClient().getError()+" You must be in a voice channel to use that!");
-                            return;
-                        }
-                        else if(!selfMember.hasPermission(vc, p))
-                        {
-                            terminate(event, String.format(botMissingPermMessage, event.getClient().getError(), p.getName(), "voice channel"));
-                            return;
-                        }
-                    }
-                    else
-                    {
-                        if(!selfMember.hasPermission(event.getGuildChannel(), p))
-                        {
-                            terminate(event, String.format(botMissingPermMessage, event.getClient().getError(), p.getName(), "channel"));
-                            return;
-                        }
-                    }
-                }
-                else
-                {
-                    if(!selfMember.hasPermission(p))
-                    {
-                        terminate(event, String.format(botMissingPermMessage, event.getClient().getError(), p.getName(), "server"));
-                        return;
-                    }
-                }
+                terminate(event, permissionError);
+                return;
             }
         }
 
+        long executeStart = 0;
+        if(tracer != CommandTracer.NONE)
+        {
+            executeStart = System.nanoTime();
+            tracer.recordStage(event, CommandTracer.Stage.CHECKS, executeStart - event.runStart - cooldownNanos);
+            tracer.recordStage(event, CommandTracer.Stage.COOLDOWN, cooldownNanos);
+        }
+
         // run
         try {
             execute(event);
         } catch(Throwable t) {
+            if(tracer != CommandTracer.NONE)
+                tracer.recordStage(event, CommandTracer.Stage.EXECUTE, System.nanoTime() - executeStart);
+            if(metrics != CommandMetrics.NONE)
+                metrics.recordException(this, t, System.nanoTime() - event.runStart);
             if(event.getClient().getListener() != null)
             {
                 event.getClient().getListener().onMessageContextMenuException(event, this, t);
@@ -150,6 +134,10 @@ public abstract class MessageContextMenu extends ContextMenu
             throw t;
         }
 
+        if(tracer != CommandTracer.NONE)
+            tracer.recordStage(event, CommandTracer.Stage.EXECUTE, System.nanoTime() - executeStart);
+        if(metrics != CommandMetrics.NONE)
+            metrics.recordCompletion(this, System.nanoTime() - event.runStart);
         if(event.getClient().getListener() != null)
             event.getClient().getListener().onCompletedMessageContextMenu(event, this);
     }
@@ -166,6 +154,9 @@ public abstract class MessageContextMenu extends ContextMenu
 
     private void terminate(MessageContextMenuEvent event, String message)
     {
+        CommandMetrics metrics = event.getClient().getCommandMetrics();
+        if(metrics != CommandMetrics.NONE)
+            metrics.recordTermination(this, System.nanoTime() - event.runStart);
         if(message!=null)
             event.reply(message).setEphemeral(true).queue();
         if(event.getClient().getListener()!=null)
@@ -70,6 +70,9 @@ public class MessageContextMenuEvent extends MessageContextInteractionEvent
 {
     private final CommandClient client;
 
+    // When the interaction started running, for the CommandMetrics
+    long runStart;
+
     public MessageContextMenuEvent(@NotNull JDA api, long responseNumber, @NotNull MessageContextInteraction interaction, CommandClient client)
     {
         super(api, responseNumber, interaction);
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command;
+
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.internal.utils.PermissionUtil;
+
+/**
+ * The {@link Interaction#userPermissions userPermissions} and {@link Interaction#botPermissions botPermissions}
+ * of an Interaction as raw permission masks, split by where they have to be checked.
+ *
+ * <p>This lets the permissions of a Member be computed once per channel and compared against all required
+ * permissions at once, instead of checking each permission separately.
+ */
+final class PermissionMasks
+{
+    private final Permission[] userPermissions;
+    private final Permission[] botPermissions;
+
+    final long userChannel;
+    final long userGuild;
+    final long botChannel;
+    final long botVoice;
+    final long botGuild;
+
+    PermissionMasks(Permission[] userPermissions, Permission[] botPermissions)
+    {
+        this.userPermissions = userPermissions;
+        this.botPermissions = botPermissions;
+
+        // userPermissions may be null for interactions disabled for everyone
+        long userChannel = 0, userGuild = 0;
+        for(Permission p : userPermissions == null ? new Permission[0] : userPermissions)
+        {
+            if(p.isChannel())
+                userChannel |= p.getRawValue();
+            else
+                userGuild |= p.getRawValue();
+        }
+
+        long botChannel = 0, botVoice = 0, botGuild = 0;
+        for(Permission p : botPermissions)
+        {
+            if(!p.isChannel())
+                botGuild |= p.getRawValue();
+            else if(p.name().startsWith("VOICE"))
+                botVoice |= p.getRawValue();
+            else
+                botChannel |= p.getRawValue();
+        }
+
+        this.userChannel = userChannel;
+        this.userGuild = userGuild;
+        this.botChannel = botChannel;
+        this.botVoice = botVoice;
+        this.botGuild = botGuild;
+    }
+
+    /**
+     * Checks whether these masks were computed from the provided permissions.
+     *
+     * @param  userPermissions
+     *         The current userPermissions of the Interaction
+     * @param  botPermissions
+     *         The current botPermissions of the Interaction
+     *
+     * @return {@code true} if these masks are for the same arrays
+     */
+    boolean isFor(Permission[] userPermissions, Permission[] botPermissions)
+    {
+        return this.userPermissions == userPermissions && this.botPermissions == botPermissions;
+    }
+
+    /**
+     * Gets the first of the userPermissions, in the order they were provided, that is part of the missing mask.
+     *
+     * @param  missing
+     *         The required permissions that are missing
+     *
+     * @return The first missing permission, or {@code null} if none are missing
+     */
+    Permission firstMissingUserPermission(long missing)
+    {
+        return firstMissing(userPermissions, missing);
+    }
+
+    /**
+     * Gets the first of the botPermissions, in the order they were provided, that is part of the missing mask.
+     *
+     * @param  missing
+     *         The required permissions that are missing
+     *
+     * @return The first missing permission, or {@code null} if none are missing
+     */
+    Permission firstMissingBotPermission(long missing)
+    {
+        return firstMissing(botPermissions, missing);
+    }
+
+    /**
+     * Computes the permissions a Member has in the whole Guild, the same way
+     * {@link Member#hasPermission(Permission...)} does, where administrators have every permission.
+     */
+    static long getGuildPermissions(Member member)
+    {
+        long permissions = PermissionUtil.getEffectivePermission(member);
+        return (permissions & Permission.ADMINISTRATOR.getRawValue()) != 0 ? ~0L : permissions;
+    }
+
+    /**
+     * Computes the permissions a Member has in a channel, the same way
+     * {@link Member#hasPermission(GuildChannel, Permission...)} does.
+     */
+    static long getChannelPermissions(Member member, GuildChannel channel)
+    {
+        return PermissionUtil.getEffectivePermission(channel.getPermissionContainer(), member);
+    }
+
+    private static Permission firstMissing(Permission[] permissions, long missing)
+    {
+        if(missing == 0 || permissions == null)
+            return null;
+        for(Permission p : permissions)
+        {
+            if((p.getRawValue() & missing) != 0)
+                return p;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command;
+
+import com.jagrosh.jdautilities.command.impl.SlidingWindowRateLimit;
+import com.jagrosh.jdautilities.command.impl.TokenBucketRateLimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A limit on how often an {@link Interaction Interaction} can be used within a {@link CooldownScope CooldownScope},
+ * as a burst tolerant alternative to a fixed {@link Interaction#cooldown cooldown}.
+ *
+ * <p>Rate limits are set through {@link Interaction#rateLimits}, and are checked after the cooldown
+ * with the same keys a cooldown with the same scope would use. An Interaction may have several rate limits,
+ * for example allowing 5 uses per 30 seconds per User, and 200 uses per minute per Guild:
+ * <pre><code>
+ * this.rateLimits = new RateLimit[] {
+ *     RateLimit.tokenBucket(5, 30, TimeUnit.SECONDS, CooldownScope.USER),
+ *     RateLimit.slidingWindow(200, 1, TimeUnit.MINUTES, CooldownScope.GUILD)
+ * };
+ * </code></pre>
+ *
+ * <p>Uses rejected by a rate limit are terminated like any other failed check, firing
+ * {@link CommandListener#onTerminatedCommand(CommandEvent, Command) CommandListener#onTerminatedCommand}
+ * or its equivalent. A rejected use isn't counted by any of them: when one rate limit rejects a use, the rate limits
+ * before it are {@link #refund(String, long) refunded} and the cooldown applied for it is removed again.
+ *
+ * <p>Implementations must be safe for concurrent use, as rate limits are checked from every shard's event thread
+ * (or the command executor).
+ */
+public interface RateLimit
+{
+    /**
+     * Gets the {@link CooldownScope CooldownScope} this rate limit is applied in.
+     *
+     * @return The CooldownScope
+     */
+    CooldownScope getScope();
+
+    /**
+     * Attempts to count a use under the provided key.
+     *
+     * @param  key
+     *         The key of the use, as generated for the {@link #getScope() scope}
+     * @param  now
+     *         The current time in epoch milliseconds
+     *
+     * @return {@code 0} if the use is allowed, otherwise the number of milliseconds until it would be
+     */
+    long tryAcquire(String key, long now);
+
+    /**
+     * Gives back a use counted by {@link #tryAcquire(String, long)}, because a later check rejected it.
+     *
+     * @param  key
+     *         The key the use was counted under
+     * @param  now
+     *         The time the use was counted at, as passed to {@link #tryAcquire(String, long)}
+     */
+    void refund(String key, long now);
+
+    /**
+     * Removes the state kept for keys that are idle at the provided time, meaning the rate limit
+     * would treat their next use the same with or without it.
+     *
+     * <p>The {@link CommandClient CommandClient} calls this periodically on its scheduler for the rate limits
+     * of its commands, so that checking a use never has to go over the state of other keys.
+     * The default implementation does nothing.
+     *
+     * @param  now
+     *         The current time in epoch milliseconds
+     */
+    default void evictIdle(long now) {}
+
+    /**
+     * Creates a token bucket rate limit, which allows bursts of up to {@code capacity} uses,
+     * and refills evenly so that {@code capacity} uses are available again after the period.
+     *
+     * @param  capacity
+     *         The number of uses in a full bucket
+     * @param  period
+     *         The time it takes to refill an empty bucket
+     * @param  unit
+     *         The TimeUnit of the period
+     * @param  scope
+     *         The CooldownScope to apply the rate limit in
+     *
+     * @return The rate limit
+     */
+    static RateLimit tokenBucket(int capacity, long period, TimeUnit unit, CooldownScope scope)
+    {
+        return new TokenBucketRateLimit(capacity, unit.toMillis(period), scope);
+    }
+
+    /**
+     * Creates a sliding window rate limit, which allows up to {@code limit} uses within any window of time.
+     *
+     * <p>The number of uses in the window is estimated from the counts of the current and previous fixed
+     * windows, weighing the previous count by how much of it still overlaps the sliding window.
+     *
+     * @param  limit
+     *         The number of uses allowed in the window
+     * @param  window
+     *         The length of the window
+     * @param  unit
+     *         The TimeUnit of the window
+     * @param  scope
+     *         The CooldownScope to apply the rate limit in
+     *
+     * @return The rate limit
+     */
+    static RateLimit slidingWindow(int limit, long window, TimeUnit unit, CooldownScope scope)
+    {
+        return new SlidingWindowRateLimit(limit, unit.toMillis(window), scope);
+    }
+}
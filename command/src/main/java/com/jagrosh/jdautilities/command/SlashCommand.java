@@ -17,11 +17,7 @@ package com.jagrosh.jdautilities.command;
 
 import com.jagrosh.jdautilities.commons.utils.TranslateUtil;
 import net.dv8tion.jda.annotations.ForRemoval;
-import net.dv8tion.jda.api.Permission;
-import net.dv8tion.jda.api.entities.GuildVoiceState;
-import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.channel.ChannelType;
-import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
 import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.interactions.DiscordLocale;
 import net.dv8tion.jda.api.interactions.IntegrationType;
@@ -118,6 +114,7 @@ public abstract class SlashCommand extends Command
      * The child commands of the command. These are used in the format {@code /<parent name>
      * <child name>}.
      * This is synonymous with sub commands. Additionally, sub-commands cannot have children.<br>
+     * These are indexed the first time a child is looked up, so they should not be changed afterwards.
      */
     protected SlashCommand[] children = new SlashCommand[0];
 
@@ -156,6 +153,12 @@ public abstract class SlashCommand extends Command
      */
     protected CommandClient client;
 
+    // Children by group and name, built the first time a child is looked up
+    private volatile ChildIndex<SlashCommand> slashChildIndex;
+
+    // SlashCommands that generate their own cooldown keys can't use the primitive ones
+    private static final ClassValue<Boolean> CUSTOM_COOLDOWN_KEY = overrides(SlashCommand.class, "getCooldownKey", SlashCommandEvent.class);
+
     /**
      * The main body method of a {@link SlashCommand SlashCommand}.
      * <br>This is the "response" for a successful
@@ -221,6 +224,10 @@ public abstract class SlashCommand extends Command
      */
     public final void run(SlashCommandEvent event)
     {
+        // only time the run when something records it
+        if(event.getClient().getCommandMetrics() != CommandMetrics.NONE || event.getClient().getCommandTracer() != CommandTracer.NONE)
+            event.runStart = System.nanoTime();
+
         // set the client
         this.client = event.getClient();
 
@@ -254,77 +261,23 @@ public abstract class SlashCommand extends Command
         if(event.getChannelType() != ChannelType.PRIVATE)
         {
             //user perms
-            if (forceUserPermissions)
+            // Member will never be null because this is only ran in a server
+            if (forceUserPermissions && event.getMember() != null)
             {
-                for(Permission p: userPermissions)
+                String permissionError = checkUserPermissions(event.getMember(), event.getGuildChannel(), client.getError());
+                if(permissionError != null)
                 {
-                    // Member will never be null because this is only ran in a server (text channel)
-                    if(event.getMember() == null)
-                        continue;
-
-                    if(p.isChannel())
-                    {
-                        if(!event.getMember().hasPermission(event.getGuildChannel(), p))
-                        {
-                            terminate(event, String.format(userMissingPermMessage, client.getError(), p.getName(), "channel"), client);
-                            return;
-                        }
-                    }
-                    else
-                    {
-                        if(!event.getMember().hasPermission(p))
-                        {
-                            terminate(event, String.format(userMissingPermMessage, client.getError(), p.getName(), "server"), client);
-                            return;
-                        }
-                    }
+                    terminate(event, permissionError, client);
+                    return;
                 }
             }
 
             // bot perms
-            for(Permission p: botPermissions)
+            String permissionError = checkBotPermissions(event.getGuild(), event.getMember(), event.getGuildChannel(), client.getError(), IGNORED_INTERACTION_BOT_PERMISSIONS);
+            if(permissionError != null)
             {
-                // We can ignore this permission because bots can reply with embeds even without either of these perms.
-                // The only thing stopping them is the user's ability to use Application Commands.
-                // It's extremely dumb, but what more can you do.
-                if (p == Permission.VIEW_CHANNEL || p == Permission.MESSAGE_EMBED_LINKS)
-                    continue;
-
-                Member selfMember = event.getGuild() == null ? null : event.getGuild().getSelfMember();
-                if(p.isChannel())
-                {
-                    if((p.name().startsWith("VOICE")))
-                    {
-                        GuildVoiceState gvc = event.getMember().getVoiceState();
-                        AudioChannel vc = gvc == null ? null : gvc.getChannel();
-                        if(vc==null)
-                        {
-                            terminate(event, client.getError()+" You must be in a voice channel to use that!", client);
-                            return;
-                        }
-                        else if(!selfMember.hasPermission(vc, p))
-                        {
-                            terminate(event, String.format(botMissingPermMessage, client.getError(), p.getName(), "voice channel"), client);
-                            return;
-                        }
-                    }
-                    else
-                    {
-                        if(!selfMember.hasPermission(event.getGuildChannel(), p))
-                        {
-                            terminate(event, String.format(botMissingPermMessage, client.getError(), p.getName(), "channel"), client);
-                            return;
-                        }
-                    }
-                }
-                else
-                {
-                    if(!selfMember.hasPermission(p))
-                    {
-                        terminate(event, String.format(botMissingPermMessage, client.getError(), p.getName(), "server"), client);
-                        return;
-                    }
-                }
+                terminate(event, permissionError, client);
+                return;
             }
 
             // nsfw check
@@ -335,23 +288,61 @@ public abstract class SlashCommand extends Command
             }
         }
 
+        CommandTracer tracer = client.getCommandTracer();
+        CommandMetrics metrics = client.getCommandMetrics();
+        long cooldownStart = tracer != CommandTracer.NONE ? System.nanoTime() : 0;
+
         // cooldown check, ignoring owner
         if(cooldown>0 && !(isOwner(event, client)))
         {
-            String key = getCooldownKey(event);
-            int remaining = client.getRemainingCooldown(key);
+            int remaining = CUSTOM_COOLDOWN_KEY.get(getClass())
+                    ? client.tryApplyCooldown(getCooldownKey(event), cooldown)
+                    : tryApplyCooldown(event, client);
             if(remaining>0)
             {
                 terminate(event, getCooldownError(event, remaining, client), client);
                 return;
             }
-            else client.applyCooldown(key, cooldown);
+        }
+
+        // rate limit check, ignoring owner
+        if(rateLimits.length>0 && !(isOwner(event, client)))
+        {
+            long now = System.currentTimeMillis();
+            for(int i = 0; i < rateLimits.length; i++)
+            {
+                long wait = rateLimits[i].tryAcquire(getScopeKey(event, rateLimits[i].getScope()), now);
+                if(wait>0)
+                {
+                    // give back what this use already took, so a rejected use isn't counted anywhere
+                    for(int j = 0; j < i; j++)
+                        rateLimits[j].refund(getScopeKey(event, rateLimits[j].getScope()), now);
+                    if(cooldown>0)
+                        client.getCooldownStore().remove(getCooldownKey(event));
+                    terminate(event, getRateLimitError(client.getWarning(), rateLimits[i], event.getGuild()!=null, wait), client);
+                    return;
+                }
+            }
+        }
+
+        long cooldownNanos = tracer != CommandTracer.NONE ? System.nanoTime() - cooldownStart : 0;
+
+        long executeStart = 0;
+        if(tracer != CommandTracer.NONE)
+        {
+            executeStart = System.nanoTime();
+            tracer.recordStage(event, CommandTracer.Stage.CHECKS, executeStart - event.runStart - cooldownNanos);
+            tracer.recordStage(event, CommandTracer.Stage.COOLDOWN, cooldownNanos);
         }
 
         // run
         try {
             execute(event);
         } catch(Throwable t) {
+            if(tracer != CommandTracer.NONE)
+                tracer.recordStage(event, CommandTracer.Stage.EXECUTE, System.nanoTime() - executeStart);
+            if(metrics != CommandMetrics.NONE)
+                metrics.recordException(this, t, System.nanoTime() - event.runStart);
             if(client.getListener() != null)
             {
                 client.getListener().onSlashCommandException(event, this, t);
@@ -361,6 +352,10 @@ public abstract class SlashCommand extends Command
             throw t;
         }
 
+        if(tracer != CommandTracer.NONE)
+            tracer.recordStage(event, CommandTracer.Stage.EXECUTE, System.nanoTime() - executeStart);
+        if(metrics != CommandMetrics.NONE)
+            metrics.recordCompletion(this, System.nanoTime() - event.runStart);
         if(client.getListener() != null)
             client.getListener().onCompletedSlashCommand(event, this);
     }
@@ -540,8 +535,42 @@ public abstract class SlashCommand extends Command
         return children;
     }
 
+    /**
+     * Finds the child of this SlashCommand with the given name, in the given subcommand group.
+     * <br>Names are matched the same way as {@link #isCommandFor(String)}, without having to check each child
+     * unless one of them overrides it.
+     *
+     * @param  group
+     *         The name of the subcommand group of the child, or {@code null} if it isn't in one
+     * @param  name
+     *         The name of the child
+     *
+     * @return The child, or {@code null} if there is none
+     */
+    public SlashCommand findChild(String group, String name)
+    {
+        ChildIndex<SlashCommand> index = slashChildIndex;
+        if(index == null)
+            slashChildIndex = index = new ChildIndex<>(getChildren(), child -> child.getSubcommandGroup() == null
+                ? null : child.getSubcommandGroup().getName());
+        if(index.customMatching)
+        {
+            for(SlashCommand child : index.children)
+            {
+                SubcommandGroupData childGroup = child.getSubcommandGroup();
+                if(child.isCommandFor(name) && (group == null ? childGroup == null : childGroup != null && childGroup.getName().equals(group)))
+                    return child;
+            }
+            return null;
+        }
+        return index.get(group, name);
+    }
+
     private void terminate(SlashCommandEvent event, String message, CommandClient client)
     {
+        CommandMetrics metrics = client.getCommandMetrics();
+        if(metrics != CommandMetrics.NONE)
+            metrics.recordTermination(this, System.nanoTime() - event.runStart);
         if(message!=null)
             event.reply(message).setEphemeral(true).queue();
         if(client.getListener()!=null)
@@ -559,26 +588,53 @@ public abstract class SlashCommand extends Command
      */
     public String getCooldownKey(SlashCommandEvent event)
     {
-        switch (cooldownScope)
+        return getScopeKey(event, cooldownScope);
+    }
+
+    // Generates the key for the provided scope, used for both cooldowns and rate limits
+    String getScopeKey(SlashCommandEvent event, CooldownScope scope)
+    {
+        switch (scope)
         {
-            case USER:         return cooldownScope.genKey(name,event.getUser().getIdLong());
-            case USER_GUILD:   return event.getGuild()!=null ? cooldownScope.genKey(name,event.getUser().getIdLong(),event.getGuild().getIdLong()) :
+            case USER:         return scope.genKey(name,event.getUser().getIdLong());
+            case USER_GUILD:   return event.getGuild()!=null ? scope.genKey(name,event.getUser().getIdLong(),event.getGuild().getIdLong()) :
                     CooldownScope.USER_CHANNEL.genKey(name,event.getUser().getIdLong(), event.getChannel().getIdLong());
-            case USER_CHANNEL: return cooldownScope.genKey(name,event.getUser().getIdLong(),event.getChannel().getIdLong());
-            case GUILD:        return event.getGuild()!=null ? cooldownScope.genKey(name,event.getGuild().getIdLong()) :
+            case USER_CHANNEL: return scope.genKey(name,event.getUser().getIdLong(),event.getChannel().getIdLong());
+            case GUILD:        return event.getGuild()!=null ? scope.genKey(name,event.getGuild().getIdLong()) :
                     CooldownScope.CHANNEL.genKey(name,event.getChannel().getIdLong());
-            case CHANNEL:      return cooldownScope.genKey(name,event.getChannel().getIdLong());
+            case CHANNEL:      return scope.genKey(name,event.getChannel().getIdLong());
             case SHARD:
                 event.getJDA().getShardInfo();
-                return cooldownScope.genKey(name, event.getJDA().getShardInfo().getShardId());
+                return scope.genKey(name, event.getJDA().getShardInfo().getShardId());
             case USER_SHARD:
                 event.getJDA().getShardInfo();
-                return cooldownScope.genKey(name,event.getUser().getIdLong(),event.getJDA().getShardInfo().getShardId());
-            case GLOBAL:       return cooldownScope.genKey(name, 0);
+                return scope.genKey(name,event.getUser().getIdLong(),event.getJDA().getShardInfo().getShardId());
+            case GLOBAL:       return scope.genKey(name, 0);
             default:           return "";
         }
     }
 
+    // Same as getCooldownKey, without building the key
+    private int tryApplyCooldown(SlashCommandEvent event, CommandClient client)
+    {
+        long user = event.getUser().getIdLong();
+        long channel = event.getChannelIdLong();
+        switch (cooldownScope)
+        {
+            case USER:         return tryApplyCooldown(client, name, cooldownScope, user, -1);
+            case USER_GUILD:   return event.getGuild()!=null ? tryApplyCooldown(client, name, cooldownScope, user, event.getGuild().getIdLong()) :
+                    tryApplyCooldown(client, name, CooldownScope.USER_CHANNEL, user, channel);
+            case USER_CHANNEL: return tryApplyCooldown(client, name, cooldownScope, user, channel);
+            case GUILD:        return event.getGuild()!=null ? tryApplyCooldown(client, name, cooldownScope, event.getGuild().getIdLong(), -1) :
+                    tryApplyCooldown(client, name, CooldownScope.CHANNEL, channel, -1);
+            case CHANNEL:      return tryApplyCooldown(client, name, cooldownScope, channel, -1);
+            case SHARD:        return tryApplyCooldown(client, name, cooldownScope, event.getJDA().getShardInfo().getShardId(), -1);
+            case USER_SHARD:   return tryApplyCooldown(client, name, cooldownScope, user, event.getJDA().getShardInfo().getShardId());
+            case GLOBAL:       return tryApplyCooldown(client, name, cooldownScope, 0, -1);
+            default:           return client.tryApplyCooldown("", cooldown);
+        }
+    }
+
     /**
      * Gets an error message for this Command under the provided
      * {@link SlashCommandEvent SlashCommandEvent}.
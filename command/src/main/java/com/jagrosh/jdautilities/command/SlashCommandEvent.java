@@ -42,6 +42,9 @@ import org.jetbrains.annotations.Nullable;
 public class SlashCommandEvent extends SlashCommandInteractionEvent {
     private final CommandClient client;
 
+    // When the interaction started running, for the CommandMetrics
+    long runStart;
+
     public SlashCommandEvent(SlashCommandInteractionEvent event, CommandClient client)
     {
         super(event.getJDA(), event.getResponseNumber(), event);
@@ -33,6 +33,9 @@ public class UserContextMenuEvent extends UserContextInteractionEvent
 {
     private final CommandClient client;
 
+    // When the interaction started running, for the CommandMetrics
+    long runStart;
+
     public UserContextMenuEvent(@NotNull JDA api, long responseNumber, @NotNull UserContextInteraction interaction, CommandClient client)
     {
         super(api, responseNumber, interaction);
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownBackend;
+import com.jagrosh.jdautilities.command.CooldownStore;
+import net.dv8tion.jda.internal.utils.Checks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link com.jagrosh.jdautilities.command.CooldownStore CooldownStore} backed by a
+ * {@link com.jagrosh.jdautilities.command.CooldownBackend CooldownBackend}, with a local read-through cache.
+ *
+ * <p>Cooldowns known to be active locally are answered from the cache without asking the backend.
+ * Otherwise, acquiring a cooldown is queued and sent to the backend together with any others queued
+ * while the previous batch was in flight, and the caller waits up to a timeout for the answer.
+ * Removing and setting cooldowns go through the same queue, and the backend sees all of them in the order
+ * they were queued.
+ * <br>If the backend doesn't answer in time (or fails), the cooldown is acquired against the local cache
+ * instead, and the cache is corrected once the backend answers. This keeps commands responsive when the
+ * backend is slow, at the cost of letting a use through that another process would have blocked.
+ *
+ * <p>Cached cooldowns are not invalidated when another process removes them, and stay active in this
+ * process until they expire.
+ */
+public class BackendCooldownStore implements CooldownStore
+{
+    private static final Logger LOG = LoggerFactory.getLogger(BackendCooldownStore.class);
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final CooldownBackend backend;
+    private final CooldownStoreImpl cache;
+    private final long timeout;
+    private final ConcurrentLinkedQueue<Operation> operations = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    /**
+     * Creates a BackendCooldownStore that waits up to 50 milliseconds for the backend.
+     *
+     * @param  backend
+     *         The CooldownBackend to share cooldowns through
+     * @param  scheduler
+     *         The ScheduledExecutorService to evict expired cooldowns from the local cache on
+     */
+    public BackendCooldownStore(CooldownBackend backend, ScheduledExecutorService scheduler)
+    {
+        this(backend, scheduler, 50, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a BackendCooldownStore.
+     *
+     * @param  backend
+     *         The CooldownBackend to share cooldowns through
+     * @param  scheduler
+     *         The ScheduledExecutorService to evict expired cooldowns from the local cache on
+     * @param  timeout
+     *         How long to wait for the backend before falling back to the local cache
+     * @param  unit
+     *         The TimeUnit of the timeout
+     */
+    public BackendCooldownStore(CooldownBackend backend, ScheduledExecutorService scheduler, long timeout, TimeUnit unit)
+    {
+        Checks.notNull(backend, "Backend");
+        Checks.notNegative(timeout, "Timeout");
+        Checks.notNull(unit, "Unit");
+        this.backend = backend;
+        this.cache = new CooldownStoreImpl(scheduler);
+        this.timeout = unit.toNanos(timeout);
+    }
+
+    @Override
+    public long getExpiration(String key)
+    {
+        long expiration = cache.getExpiration(key);
+        if(expiration != 0)
+            return expiration;
+
+        long now = System.currentTimeMillis();
+        try
+        {
+            expiration = backend.fetch(new String[]{key}, now).get(timeout, TimeUnit.NANOSECONDS)[0];
+            if(expiration > now)
+                cache.tryAcquire(key, now, expiration);
+            return expiration;
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+        catch(ExecutionException | TimeoutException e)
+        {
+            return 0;
+        }
+    }
+
+    @Override
+    public void setExpiration(String key, long expiration)
+    {
+        cache.setExpiration(key, expiration);
+        operations.add(new Operation(key, true, true, System.currentTimeMillis(), expiration));
+        flush();
+    }
+
+    @Override
+    public long tryAcquire(String key, long now, long expiration)
+    {
+        // Known to be on cooldown, no need to ask the backend
+        long current = cache.getExpiration(key);
+        if(current > now)
+            return current;
+
+        Operation acquire = new Operation(key, false, true, now, expiration);
+        operations.add(acquire);
+        flush();
+        try
+        {
+            long result = acquire.result.get(timeout, TimeUnit.NANOSECONDS);
+            if(result == 0)
+                cache.setExpiration(key, expiration);
+            else
+                cache.tryAcquire(key, now, result);
+            return result;
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch(ExecutionException | TimeoutException e)
+        {
+            // Fall through to the cache
+        }
+
+        // Correct the cache once the backend answers, in case another process holds the cooldown
+        acquire.result.thenAccept(result -> {
+            if(result != 0)
+                cache.setExpiration(key, result);
+        });
+        return cache.tryAcquire(key, now, expiration);
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        cache.remove(key);
+        operations.add(new Operation(key, true, false, 0, 0));
+        flush();
+    }
+
+    @Override
+    public int size()
+    {
+        return cache.size();
+    }
+
+    @Override
+    public void evictExpired()
+    {
+        cache.evictExpired();
+    }
+
+    @Override
+    public void shutdown()
+    {
+        cache.shutdown();
+        backend.shutdown();
+    }
+
+    // Sends everything queued as one batch, unless a batch is already in flight, which flushes again once done.
+    // The batch is sent as runs of acquires and releases, each sent once the one before it is done,
+    // so that the backend sees them in the order they were queued
+    private void flush()
+    {
+        if(!flushing.compareAndSet(false, true))
+            return;
+
+        List<Operation> batch = new ArrayList<>();
+        Operation next;
+        while(batch.size() < MAX_BATCH_SIZE && (next = operations.poll()) != null)
+            batch.add(next);
+
+        CompletableFuture<?> sent = CompletableFuture.completedFuture(null);
+        List<String> released = new ArrayList<>();
+        List<Operation> acquired = new ArrayList<>();
+        for(Operation operation : batch)
+        {
+            if(operation.release)
+            {
+                if(!acquired.isEmpty())
+                {
+                    sent = sendAcquires(sent, acquired);
+                    acquired = new ArrayList<>();
+                }
+                released.add(operation.key);
+            }
+            if(operation.acquire)
+            {
+                if(!released.isEmpty())
+                {
+                    sent = sendReleases(sent, released);
+                    released = new ArrayList<>();
+                }
+                acquired.add(operation);
+            }
+        }
+        // Only one of these is left over
+        if(!released.isEmpty())
+            sent = sendReleases(sent, released);
+        if(!acquired.isEmpty())
+            sent = sendAcquires(sent, acquired);
+
+        sent.whenComplete((v, error) -> {
+            flushing.set(false);
+            if(!operations.isEmpty())
+                flush();
+        });
+    }
+
+    // Failures are already logged, and shouldn't keep the rest of the batch from being sent
+    private CompletableFuture<long[]> sendAcquires(CompletableFuture<?> previous, List<Operation> batch)
+    {
+        return previous.handle((v, error) -> null).thenCompose(v -> acquire(batch));
+    }
+
+    private CompletableFuture<Void> sendReleases(CompletableFuture<?> previous, List<String> keys)
+    {
+        return previous.handle((v, error) -> null).thenCompose(v -> release(keys));
+    }
+
+    private CompletableFuture<long[]> acquire(List<Operation> batch)
+    {
+        String[] keys = new String[batch.size()];
+        long[] expirations = new long[batch.size()];
+        long now = 0;
+        for(int i = 0; i < keys.length; i++)
+        {
+            Operation acquire = batch.get(i);
+            keys[i] = acquire.key;
+            expirations[i] = acquire.expiration;
+            now = Math.max(now, acquire.now);
+        }
+
+        CompletableFuture<long[]> future;
+        try
+        {
+            future = backend.acquire(keys, expirations, now);
+        }
+        catch(Throwable t)
+        {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(t);
+        }
+        return future.whenComplete((results, error) -> {
+            if(error != null)
+                LOG.error("Failed to acquire cooldowns from the backend", error);
+            for(int i = 0; i < keys.length; i++)
+            {
+                if(error != null)
+                    batch.get(i).result.completeExceptionally(error);
+                else
+                    batch.get(i).result.complete(results[i]);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> release(List<String> keys)
+    {
+        CompletableFuture<Void> future;
+        try
+        {
+            future = backend.release(keys.toArray(new String[0]));
+        }
+        catch(Throwable t)
+        {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(t);
+        }
+        return future.whenComplete((v, error) -> {
+            if(error != null)
+                LOG.error("Failed to release cooldowns from the backend", error);
+        });
+    }
+
+    // A queued acquire or release, or both for setting a cooldown, which releases the key before acquiring it again
+    private static final class Operation
+    {
+        private final String key;
+        private final boolean release;
+        private final boolean acquire;
+        private final long now;
+        private final long expiration;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        private Operation(String key, boolean release, boolean acquire, long now, long expiration)
+        {
+            this.key = key;
+            this.release = release;
+            this.acquire = acquire;
+            this.now = now;
+            this.expiration = expiration;
+        }
+    }
+}
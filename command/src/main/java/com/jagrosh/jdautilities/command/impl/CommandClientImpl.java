@@ -21,11 +21,18 @@ import com.jagrosh.jdautilities.command.Command.Category;
 import com.jagrosh.jdautilities.command.CommandClient;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jdautilities.command.CommandListener;
+import com.jagrosh.jdautilities.command.CommandMetrics;
+import com.jagrosh.jdautilities.command.CommandTracer;
+import com.jagrosh.jdautilities.command.CommandOrdering;
 import com.jagrosh.jdautilities.command.ContextMenu;
+import com.jagrosh.jdautilities.command.CooldownBackend;
+import com.jagrosh.jdautilities.command.CooldownStore;
 import com.jagrosh.jdautilities.command.GuildSettingsManager;
 import com.jagrosh.jdautilities.command.GuildSettingsProvider;
+import com.jagrosh.jdautilities.command.Interaction;
 import com.jagrosh.jdautilities.command.MessageContextMenu;
 import com.jagrosh.jdautilities.command.MessageContextMenuEvent;
+import com.jagrosh.jdautilities.command.RateLimit;
 import com.jagrosh.jdautilities.command.SlashCommand;
 import com.jagrosh.jdautilities.command.SlashCommandEvent;
 import com.jagrosh.jdautilities.command.UserContextMenu;
@@ -71,11 +78,13 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.time.Instant;
 import java.time.OffsetDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -84,8 +93,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -106,6 +121,8 @@ import java.util.stream.Collectors;
 public class CommandClientImpl implements CommandClient, EventListener
 {
     private static final Logger LOG = LoggerFactory.getLogger(CommandClient.class);
+    // Seconds between evicting the idle state of rate limits
+    private static final long RATE_LIMIT_EVICTION_INTERVAL = 60;
     private static final String DEFAULT_PREFIX = "@mention";
 
     private final OffsetDateTime start;
@@ -116,16 +133,22 @@ public class CommandClientImpl implements CommandClient, EventListener
     private final String prefix;
     private final String altprefix;
     private final String[] prefixes;
+    private final PrefixTrie prefixTrie;
     private final Function<MessageReceivedEvent, String> prefixFunction;
     private final Function<MessageReceivedEvent, Boolean> commandPreProcessFunction;
     private final BiFunction<MessageReceivedEvent, Command, Boolean> commandPreProcessBiFunction;
     private final String serverInvite;
     private final HashMap<String, Integer> commandIndex;
     private final HashMap<String, Integer> slashCommandIndex;
+    // Read-only snapshots of the indexes above, replaced whenever they change so dispatch needs no locking
+    private volatile Map<String, Registered<Command>> commandTable = Collections.emptyMap();
+    private volatile Map<String, Registered<SlashCommand>> slashCommandTable = Collections.emptyMap();
     private final ArrayList<Command> commands;
     private final ArrayList<SlashCommand> slashCommands;
     private final ArrayList<String> slashCommandIds;
     private final ArrayList<ContextMenu> contextMenus;
+    // The use counters of the context menus, in the same order
+    private final ArrayList<LongAdder> contextMenuUses;
     private final HashMap<String, Integer> contextMenuIndex;
     private final String forcedGuildId;
     private final boolean manualUpsert;
@@ -133,8 +156,8 @@ public class CommandClientImpl implements CommandClient, EventListener
     private final String warning;
     private final String error;
     private final String botsKey, carbonKey;
-    private final HashMap<String,OffsetDateTime> cooldowns;
-    private final HashMap<String,Integer> uses;
+    private final CooldownStore cooldowns;
+    private final ConcurrentHashMap<String, LongAdder> uses;
     private final FixedSizeCache<Long, Set<Message>> linkMap;
     private final boolean useHelp;
     private final boolean shutdownAutomatically;
@@ -143,6 +166,13 @@ public class CommandClientImpl implements CommandClient, EventListener
     private final ScheduledExecutorService executor;
     private final AnnotatedModuleCompiler compiler;
     private final GuildSettingsManager manager;
+    private final Executor commandExecutor;
+    private final CommandOrdering commandOrdering;
+    private final CommandMetrics commandMetrics;
+    private final CommandTracer commandTracer;
+    private final KeyedSerialExecutor commandLanes;
+    private final int maxPendingCommands;
+    private final AtomicInteger pendingCommands;
 
     private String textPrefix;
     private CommandListener listener = null;
@@ -151,7 +181,10 @@ public class CommandClientImpl implements CommandClient, EventListener
     public CommandClientImpl(String ownerId, String[] coOwnerIds, String prefix, String altprefix, String[] prefixes, Function<MessageReceivedEvent, String> prefixFunction, Function<MessageReceivedEvent, Boolean> commandPreProcessFunction, BiFunction<MessageReceivedEvent, Command, Boolean> commandPreProcessBiFunction, Activity activity, OnlineStatus status, String serverInvite,
                              String success, String warning, String error, String carbonKey, String botsKey, ArrayList<Command> commands, ArrayList<SlashCommand> slashCommands, ArrayList<ContextMenu> contextMenus, String forcedGuildId, boolean manualUpsert,
                              boolean useHelp, boolean shutdownAutomatically, Consumer<CommandEvent> helpConsumer, String helpWord, ScheduledExecutorService executor,
-                             int linkedCacheSize, AnnotatedModuleCompiler compiler, GuildSettingsManager manager)
+                             int linkedCacheSize, AnnotatedModuleCompiler compiler, GuildSettingsManager manager,
+                             Executor commandExecutor, int maxPendingCommands, CommandOrdering commandOrdering,
+                             CooldownStore cooldownStore, CooldownBackend cooldownBackend, CommandMetrics commandMetrics,
+                             CommandTracer commandTracer)
     {
         Checks.check(ownerId != null, "Owner ID was set null or not set! Please provide an User ID to register as the owner!");
 
@@ -179,6 +212,7 @@ public class CommandClientImpl implements CommandClient, EventListener
             Arrays.sort(this.prefixes, Comparator.reverseOrder());
         }
 
+        this.prefixTrie = compilePrefixes();
         this.prefixFunction = prefixFunction;
         this.commandPreProcessFunction = commandPreProcessFunction;
         this.commandPreProcessBiFunction = commandPreProcessBiFunction;
@@ -197,18 +231,31 @@ public class CommandClientImpl implements CommandClient, EventListener
         this.slashCommands = new ArrayList<>();
         this.slashCommandIds = new ArrayList<>();
         this.contextMenus = new ArrayList<>();
+        this.contextMenuUses = new ArrayList<>();
         this.contextMenuIndex = new HashMap<>();
         this.forcedGuildId = forcedGuildId;
         this.manualUpsert = manualUpsert;
-        this.cooldowns = new HashMap<>();
-        this.uses = new HashMap<>();
+        this.uses = new ConcurrentHashMap<>();
         this.linkMap = linkedCacheSize>0 ? new FixedSizeCache<>(linkedCacheSize) : null;
         this.useHelp = useHelp;
         this.shutdownAutomatically = shutdownAutomatically;
         this.helpWord = helpWord==null ? "help" : helpWord;
         this.executor = executor==null ? Executors.newSingleThreadScheduledExecutor() : executor;
+        if(cooldownStore != null)
+            this.cooldowns = cooldownStore;
+        else if(cooldownBackend != null)
+            this.cooldowns = new BackendCooldownStore(cooldownBackend, this.executor);
+        else
+            this.cooldowns = new CooldownStoreImpl(this.executor);
         this.compiler = compiler;
         this.manager = manager;
+        this.commandExecutor = commandExecutor;
+        this.commandOrdering = commandOrdering;
+        this.commandMetrics = commandMetrics;
+        this.commandTracer = commandTracer;
+        this.commandLanes = commandExecutor == null || commandOrdering == CommandOrdering.NONE ? null : new KeyedSerialExecutor(commandExecutor);
+        this.maxPendingCommands = maxPendingCommands;
+        this.pendingCommands = new AtomicInteger();
         this.helpConsumer = helpConsumer==null ? (event) -> {
                 StringBuilder builder = new StringBuilder("**"+event.getSelfUser().getName()+"** commands:\n");
                 Category category = null;
@@ -240,6 +287,9 @@ public class CommandClientImpl implements CommandClient, EventListener
                 }, t -> event.replyWarning("Help cannot be sent because you are blocking Direct Messages."));
         } : helpConsumer;
 
+        this.executor.scheduleWithFixedDelay(this::evictIdleRateLimits,
+            RATE_LIMIT_EVICTION_INTERVAL, RATE_LIMIT_EVICTION_INTERVAL, TimeUnit.SECONDS);
+
         // Load commands
         for(Command command : commands)
         {
@@ -310,37 +360,58 @@ public class CommandClientImpl implements CommandClient, EventListener
     @Override
     public OffsetDateTime getCooldown(String name)
     {
-        return cooldowns.get(name);
+        long expiration = cooldowns.getExpiration(name);
+        if(expiration == 0)
+            return null;
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(expiration), ZoneId.systemDefault());
     }
 
     @Override
     public int getRemainingCooldown(String name)
     {
-        if(cooldowns.containsKey(name))
-        {
-            int time = (int) Math.ceil(OffsetDateTime.now().until(cooldowns.get(name), ChronoUnit.MILLIS) / 1000D);
-            if(time<=0)
-            {
-                cooldowns.remove(name);
-                return 0;
-            }
-            return time;
-        }
-        return 0;
+        long expiration = cooldowns.getExpiration(name);
+        if(expiration == 0)
+            return 0;
+        long remaining = expiration - System.currentTimeMillis();
+        return remaining <= 0 ? 0 : (int) ((remaining + 999) / 1000);
     }
 
     @Override
     public void applyCooldown(String name, int seconds)
     {
-        cooldowns.put(name, OffsetDateTime.now().plusSeconds(seconds));
+        cooldowns.setExpiration(name, System.currentTimeMillis() + seconds * 1000L);
+    }
+
+    @Override
+    public int tryApplyCooldown(String name, int seconds)
+    {
+        long now = System.currentTimeMillis();
+        long expiration = cooldowns.tryAcquire(name, now, now + seconds * 1000L);
+        return expiration == 0 ? 0 : (int) ((expiration - now + 999) / 1000);
     }
 
     @Override
     public void cleanCooldowns()
     {
-        OffsetDateTime now = OffsetDateTime.now();
-        cooldowns.keySet().stream().filter((str) -> (cooldowns.get(str).isBefore(now)))
-                .collect(Collectors.toList()).forEach(cooldowns::remove);
+        cooldowns.evictExpired();
+    }
+
+    @Override
+    public CooldownStore getCooldownStore()
+    {
+        return cooldowns;
+    }
+
+    @Override
+    public CommandMetrics getCommandMetrics()
+    {
+        return commandMetrics;
+    }
+
+    @Override
+    public CommandTracer getCommandTracer()
+    {
+        return commandTracer;
     }
 
     @Override
@@ -352,7 +423,20 @@ public class CommandClientImpl implements CommandClient, EventListener
     @Override
     public int getCommandUses(String name)
     {
-    	return uses.getOrDefault(name, 0);
+        return (int) Math.min(getCommandUseCount(name), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getCommandUseCount(Command command)
+    {
+        return getCommandUseCount(command.getName());
+    }
+
+    @Override
+    public long getCommandUseCount(String name)
+    {
+        LongAdder counter = uses.get(name);
+        return counter == null ? 0 : counter.sum();
     }
 
     @Override
@@ -387,8 +471,9 @@ public class CommandClientImpl implements CommandClient, EventListener
             commandIndex.put(name, index);
             for(String alias : command.getAliases())
                 commandIndex.put(alias.toLowerCase(Locale.ROOT), index);
+            commands.add(index,command);
+            commandTable = snapshot(commandIndex, commands, this::register);
         }
-        commands.add(index,command);
     }
 
     @Override
@@ -416,8 +501,9 @@ public class CommandClientImpl implements CommandClient, EventListener
             }
             //add
             slashCommandIndex.put(name, index);
+            slashCommands.add(index,command);
+            slashCommandTable = snapshot(slashCommandIndex, slashCommands, this::register);
         }
-        slashCommands.add(index,command);
     }
 
     @Override
@@ -449,8 +535,9 @@ public class CommandClientImpl implements CommandClient, EventListener
             }
             //add
             contextMenuIndex.put(name, index);
+            contextMenus.add(index,menu);
+            contextMenuUses.add(index, counter(menu.getName()));
         }
-        contextMenus.add(index,menu);
     }
 
     @Override
@@ -468,9 +555,38 @@ public class CommandClientImpl implements CommandClient, EventListener
             }
             commandIndex.entrySet().stream().filter(entry -> entry.getValue()>targetIndex).collect(Collectors.toList())
                 .forEach(entry -> commandIndex.put(entry.getKey(), entry.getValue()-1));
+            commandTable = snapshot(commandIndex, commands, this::register);
         }
     }
 
+    private static <C> Map<String, Registered<C>> snapshot(Map<String, Integer> index, List<C> list, Function<C, Registered<C>> register)
+    {
+        List<Registered<C>> registered = new ArrayList<>(list.size());
+        for(C command : list)
+            registered.add(register.apply(command));
+        Map<String, Registered<C>> table = new HashMap<>(index.size() * 2);
+        index.forEach((name, i) -> table.put(name, registered.get(i)));
+        return Collections.unmodifiableMap(table);
+    }
+
+    private Registered<Command> register(Command command)
+    {
+        return new Registered<>(command, counter(command.getName()), Collections.emptyList());
+    }
+
+    private Registered<SlashCommand> register(SlashCommand command)
+    {
+        List<Registered<SlashCommand>> children = new ArrayList<>(command.getChildren().length);
+        for(SlashCommand child : command.getChildren())
+            children.add(register(child));
+        return new Registered<>(command, counter(command.getName()), children);
+    }
+
+    private LongAdder counter(String name)
+    {
+        return uses.computeIfAbsent(name, n -> new LongAdder());
+    }
+
     @Override
     public void addAnnotatedModule(Object module)
     {
@@ -613,6 +729,7 @@ public class CommandClientImpl implements CommandClient, EventListener
         GuildSettingsManager<?> manager = getSettingsManager();
         if(manager != null)
             manager.shutdown();
+        cooldowns.shutdown();
         executor.shutdown();
     }
 
@@ -643,7 +760,9 @@ public class CommandClientImpl implements CommandClient, EventListener
                 sendStats(event.getJDA());
         }
         else if(event instanceof GuildLeaveEvent)
+        {
             sendStats(event.getJDA());
+        }
         else if(event instanceof ReadyEvent)
             onReady((ReadyEvent)event);
         else if(event instanceof ShutdownEvent)
@@ -737,7 +856,10 @@ public class CommandClientImpl implements CommandClient, EventListener
         if(event.getAuthor().isBot())
             return;
 
+        final long parseStart = commandTracer != CommandTracer.NONE ? System.nanoTime() : 0;
         final MessageParts parts = getParts(event);
+        if(commandTracer != CommandTracer.NONE)
+            commandTracer.recordStage(event, CommandTracer.Stage.PARSE, System.nanoTime() - parseStart);
 
         if(parts!=null) //starts with valid prefix
         {
@@ -755,32 +877,29 @@ public class CommandClientImpl implements CommandClient, EventListener
             {
                 String name = parts.command;
                 String args = parts.args;
-                final Command command; // this will be null if it's not a command
-                synchronized(commandIndex)
-                {
-                    int i = commandIndex.getOrDefault(name.toLowerCase(Locale.ROOT), -1);
-                    command = i != -1? commands.get(i) : null;
-                }
+                // this will be null if it's not a command
+                final Registered<Command> registered = commandTable.get(name.toLowerCase(Locale.ROOT));
 
-                if(command != null)
+                if(registered != null)
                 {
+                    final Command command = registered.command;
                     CommandEvent cevent = new CommandEvent(event, parts.prefixUsed, args, this);
 
                     if(listener != null)
                         listener.onCommand(cevent, command);
-                    uses.put(command.getName(), uses.getOrDefault(command.getName(), 0) + 1);
+                    registered.uses.increment();
                     if (commandPreProcessFunction != null || commandPreProcessBiFunction != null)
                     {
                         // Apply both pre-process functions
                         if (commandPreProcessFunction != null && commandPreProcessFunction.apply(event))
                         {
-                            command.run(cevent);
+                            runCommand(cevent, command);
                             return;
                         }
 
                         if (commandPreProcessBiFunction != null && commandPreProcessBiFunction.apply(event, command))
                         {
-                            command.run(cevent);
+                            runCommand(cevent, command);
                             return;
                         }
 
@@ -789,7 +908,7 @@ public class CommandClientImpl implements CommandClient, EventListener
                     }
                     else
                     {
-                        command.run(cevent);
+                        runCommand(cevent, command);
                     }
                     return; // Command is done
                 }
@@ -800,20 +919,17 @@ public class CommandClientImpl implements CommandClient, EventListener
             listener.onNonCommandMessage(event);
     }
 
+    // Package-private for the allocation benchmark
     @Nullable
-    private MessageParts getParts(MessageReceivedEvent event) {
+    MessageParts getParts(MessageReceivedEvent event) {
         String rawContent = event.getMessage().getContentRaw();
 
-        GuildSettingsProvider settings = event.isFromType(ChannelType.TEXT)? provideSettings(event.getGuild()) : null;
+        // Nothing up to the guild specific prefixes allocates, since most messages aren't commands
 
         // Check for prefix or alternate prefix (@mention cases)
         if(prefix.equals(DEFAULT_PREFIX) || (altprefix != null && altprefix.equals(DEFAULT_PREFIX))) {
-            if(rawContent.startsWith("<@"+ event.getJDA().getSelfUser().getId()+">") ||
-                    rawContent.startsWith("<@!"+ event.getJDA().getSelfUser().getId()+">")) {
-                // Since we now use substring into makeMessageParts function and a indexOf here, we need to do a +1 to get the good substring
-                // On top of that we need to do another +1 because the default @mention prefix will always be followed by a space
-                // So we need to add 2 characters to get the correct substring
-                final int prefixLength = rawContent.indexOf('>') + 2;
+            final int prefixLength = mentionPrefixLength(rawContent, event.getJDA().getSelfUser().getIdLong());
+            if(prefixLength >= 0) {
                 return makeMessageParts(rawContent, prefixLength);
             }
         }
@@ -829,38 +945,26 @@ public class CommandClientImpl implements CommandClient, EventListener
             }
         }
 
-        final String lowerCaseContent = rawContent.toLowerCase(Locale.ROOT);
-        // Check for default prefix
-        if (lowerCaseContent.startsWith(prefix.toLowerCase(Locale.ROOT))) {
-            final int prefixLength = prefix.length();
+        // Check for default prefix, alternate prefix, and prefixes, longest first
+        int prefixLength = prefixTrie.match(rawContent);
+        if (prefixLength >= 0) {
             return makeMessageParts(rawContent, prefixLength);
         }
 
-        // Check for alternate prefix
-        if(altprefix != null && lowerCaseContent.startsWith(altprefix.toLowerCase(Locale.ROOT))) {
-            final int prefixLength = altprefix.length();
-            return makeMessageParts(rawContent, prefixLength);
-        }
-
-        // Check for prefixes
-        if (prefixes != null) {
-            for (String pre : prefixes) {
-                if (lowerCaseContent.startsWith(pre.toLowerCase(Locale.ROOT))) {
-                    final int prefixLength = pre.length();
-                    return makeMessageParts(rawContent, prefixLength);
-                }
-            }
+        // Check for guild specific prefixes, which can only be set through a settings manager
+        GuildSettingsProvider settings = null;
+        if(manager != null && event.isFromType(ChannelType.TEXT)) {
+            final long settingsStart = commandTracer != CommandTracer.NONE ? System.nanoTime() : 0;
+            settings = provideSettings(event.getGuild());
+            if(commandTracer != CommandTracer.NONE)
+                commandTracer.recordStage(event, CommandTracer.Stage.SETTINGS, System.nanoTime() - settingsStart);
         }
-
-        // Check for guild specific prefixes
         if(settings != null) {
             Collection<String> prefixes = settings.getPrefixes();
-            if(prefixes != null) {
-                for(String prefix : prefixes) {
-                    if(lowerCaseContent.startsWith(prefix.toLowerCase(Locale.ROOT))) {
-                        final int prefixLength = prefix.length();
-                        return makeMessageParts(rawContent, prefixLength);
-                    }
+            if(prefixes != null && !prefixes.isEmpty()) {
+                prefixLength = longestPrefixLength(rawContent, prefixes);
+                if(prefixLength >= 0) {
+                    return makeMessageParts(rawContent, prefixLength);
                 }
             }
         }
@@ -868,6 +972,63 @@ public class CommandClientImpl implements CommandClient, EventListener
         return null;
     }
 
+    /**
+     * Checks whether the content starts with a mention of the bot, either {@code <@id>} or {@code <@!id>},
+     * by comparing characters rather than building both mentions for every message.
+     *
+     * @param content
+     *        The raw content of the incoming message
+     * @param selfId
+     *        The ID of the bot
+     * @return The length of the prefix, including the space that always follows the mention, or {@code -1}
+     *         if the content doesn't start with a mention of the bot
+     */
+    private static int mentionPrefixLength(String content, long selfId)
+    {
+        if(content.length() < 4 || content.charAt(0) != '<' || content.charAt(1) != '@')
+            return -1;
+        final int start = content.charAt(2) == '!' ? 3 : 2;
+        int i = start;
+        long id = 0;
+        // Snowflakes have at most 19 digits, any more and this would overflow
+        while(i < content.length() && i - start < 20)
+        {
+            char c = content.charAt(i);
+            if(c < '0' || c > '9')
+                break;
+            id = id * 10 + (c - '0');
+            i++;
+        }
+        if(i == start || i - start > 19 || i >= content.length() || content.charAt(i) != '>' || id != selfId)
+            return -1;
+        // +1 to get past the '>', and another +1 because the mention is always followed by a space
+        return Math.min(i + 2, content.length());
+    }
+
+    private PrefixTrie compilePrefixes()
+    {
+        List<String> all = new ArrayList<>();
+        all.add(prefix);
+        if(altprefix != null)
+            all.add(altprefix);
+        if(prefixes != null)
+            all.addAll(Arrays.asList(prefixes));
+        return new PrefixTrie(all);
+    }
+
+    private static int longestPrefixLength(String content, Collection<String> prefixes)
+    {
+        // Guilds have few prefixes, which may change at any time, so they're compared
+        // directly rather than compiled into a trie that would have to be checked for changes
+        int longest = -1;
+        for(String prefix : prefixes)
+        {
+            if(prefix != null && prefix.length() > longest && content.regionMatches(true, 0, prefix, 0, prefix.length()))
+                longest = prefix.length();
+        }
+        return longest;
+    }
+
     /**
      * Processes the message raw content and returns the "parts" of the message
      * <br>These parts include:
@@ -923,17 +1084,21 @@ public class CommandClientImpl implements CommandClient, EventListener
     private void onSlashCommand(SlashCommandInteractionEvent event)
     {
         // this will be null if it's not a command
-        final SlashCommand command = findSlashCommand(event.getFullCommandName());
+        final Registered<SlashCommand> registered = findSlashCommand(event.getFullCommandName());
 
         // Wrap the event in a SlashCommandEvent
         final SlashCommandEvent commandEvent = new SlashCommandEvent(event, this);
 
-        if(command != null)
+        if(registered != null)
         {
+            final SlashCommand command = registered.command;
             if(listener != null)
                 listener.onSlashCommand(commandEvent, command);
-            uses.put(command.getName(), uses.getOrDefault(command.getName(), 0) + 1);
-            command.run(commandEvent);
+            registered.uses.increment();
+            dispatch(orderingKey(event.getGuild(), event.getChannelIdLong(), event.getUser()), commandEvent, command, () -> command.run(commandEvent), () -> {
+                if(listener != null)
+                    listener.onRejectedSlashCommand(commandEvent, command);
+            });
             // Command is done
         }
     }
@@ -941,53 +1106,145 @@ public class CommandClientImpl implements CommandClient, EventListener
     private void onCommandAutoComplete(CommandAutoCompleteInteractionEvent event)
     {
         // this will be null if it's not a command
-        final SlashCommand command = findSlashCommand(event.getFullCommandName());
+        final Registered<SlashCommand> registered = findSlashCommand(event.getFullCommandName());
 
-        if(command != null)
+        if(registered != null)
         {
-            command.onAutoComplete(event);
+            registered.command.onAutoComplete(event);
         }
     }
 
-    private SlashCommand findSlashCommand(String path)
+    private void runCommand(CommandEvent event, Command command)
     {
-        String[] parts = path.split(" ");
+        MessageReceivedEvent received = event.getEvent();
+        long key = orderingKey(received.isFromGuild() ? received.getGuild() : null, received.getChannel().getIdLong(), received.getAuthor());
+        dispatch(key, received, command, () -> command.run(event), () -> {
+            if(listener != null)
+                listener.onRejectedCommand(event, command);
+        });
+    }
 
-        final SlashCommand command; // this will be null if it's not a command
-        synchronized(slashCommandIndex)
+    private long orderingKey(Guild guild, long channelId, User user)
+    {
+        switch(commandOrdering)
         {
-            int i = slashCommandIndex.getOrDefault(parts[0].toLowerCase(Locale.ROOT), -1);
-            command = i != -1? slashCommands.get(i) : null;
+            case GUILD:
+                return guild != null ? guild.getIdLong() : channelId;
+            case CHANNEL:
+                return channelId;
+            case USER:
+                return user.getIdLong();
+            default:
+                return 0L;
         }
+    }
 
-        if (command == null)
+    /**
+     * Runs the task on the command executor, or right away if there is none.
+     *
+     * @param  key
+     *         The {@link CommandOrdering} key of the command, used if commands are ordered
+     * @param  event
+     *         The event the command is run for, reported to the {@link CommandTracer} with the time spent queued
+     * @param  interaction
+     *         The command being run, reported to the {@link CommandMetrics} if rejected
+     * @param  task
+     *         Running the command
+     * @param  rejected
+     *         Notifying the listener if the task was rejected because too many commands are pending, or by the executor.
+     *         When commands are ordered, this may happen later for a task queued behind a rejected one.
+     */
+    private void dispatch(long key, GenericEvent event, Interaction interaction, Runnable task, Runnable rejected)
+    {
+        if(commandExecutor == null)
+        {
+            task.run();
+            return;
+        }
+
+        if(pendingCommands.incrementAndGet() > maxPendingCommands && maxPendingCommands > 0)
+        {
+            reject(interaction, rejected);
+            return;
+        }
+        try
+        {
+            final long queued = commandTracer != CommandTracer.NONE ? System.nanoTime() : 0;
+            Runnable wrapped = () -> {
+                try
+                {
+                    if(commandTracer != CommandTracer.NONE)
+                        commandTracer.recordStage(event, CommandTracer.Stage.QUEUE, System.nanoTime() - queued);
+                    task.run();
+                }
+                catch(Throwable t)
+                {
+                    // Would otherwise be handled by JDA when running on the event thread
+                    LOG.error("One of the commands had an uncaught exception:", t);
+                }
+                finally
+                {
+                    pendingCommands.decrementAndGet();
+                }
+            };
+            if(commandLanes != null)
+                commandLanes.execute(key, wrapped, () -> reject(interaction, rejected));
+            else
+                commandExecutor.execute(wrapped);
+        }
+        catch(RejectedExecutionException ex)
+        {
+            reject(interaction, rejected);
+        }
+    }
+
+    private void reject(Interaction interaction, Runnable rejected)
+    {
+        pendingCommands.decrementAndGet();
+        commandMetrics.recordRejection(interaction);
+        rejected.run();
+    }
+
+    private Registered<SlashCommand> findSlashCommand(String path)
+    {
+        String[] parts = path.split(" ");
+
+        // this will be null if it's not a command
+        final Registered<SlashCommand> registered = slashCommandTable.get(parts[0].toLowerCase(Locale.ROOT));
+
+        if (registered == null)
             return null;
 
         switch (parts.length) {
             case 1: // Slash command with no children
-                return command;
+                return registered;
             case 2: // Slash command with children
-                // child check
-                for(SlashCommand cmd: command.getChildren())
-                    if(cmd.isCommandFor(parts[1]) && cmd.getSubcommandGroup() == null)
-                        return cmd;
-
-                return null;
+                return findChild(registered, registered.command.findChild(null, parts[1]));
             case 3: // Slash command with a group and a child
-                for(SlashCommand cmd: command.getChildren())
-                    if(cmd.isCommandFor(parts[2]) && cmd.getSubcommandGroup() != null && cmd.getSubcommandGroup().getName().equals(parts[1]))
-                        return cmd;
-
-                return null;
+                return findChild(registered, registered.command.findChild(parts[1], parts[2]));
         }
 
         // How did we get here?
         return null;
     }
 
+    private Registered<SlashCommand> findChild(Registered<SlashCommand> parent, SlashCommand child)
+    {
+        if(child == null)
+            return null;
+        for(Registered<SlashCommand> registered : parent.children)
+        {
+            if(registered.command == child)
+                return registered;
+        }
+        // The children were changed after the command was registered
+        return register(child);
+    }
+
     private void onUserContextMenu(UserContextInteractionEvent event)
     {
         final UserContextMenu menu; // this will be null if it's not a command
+        final LongAdder counter;
         synchronized(contextMenuIndex)
         {
             ContextMenu c;
@@ -995,9 +1252,15 @@ public class CommandClientImpl implements CommandClient, EventListener
             c = i != -1 ? contextMenus.get(i) : null;
 
             if (c instanceof UserContextMenu)
+            {
                 menu = (UserContextMenu) c;
+                counter = contextMenuUses.get(i);
+            }
             else
+            {
                 menu = null;
+                counter = null;
+            }
         }
 
         final UserContextMenuEvent menuEvent = new UserContextMenuEvent(event.getJDA(), event.getResponseNumber(), event,this);
@@ -1006,8 +1269,11 @@ public class CommandClientImpl implements CommandClient, EventListener
         {
             if(listener != null)
                 listener.onUserContextMenu(menuEvent, menu);
-            uses.put(menu.getName(), uses.getOrDefault(menu.getName(), 0) + 1);
-            menu.run(menuEvent);
+            counter.increment();
+            dispatch(orderingKey(event.getGuild(), event.getChannelIdLong(), event.getUser()), menuEvent, menu, () -> menu.run(menuEvent), () -> {
+                if(listener != null)
+                    listener.onRejectedUserContextMenu(menuEvent, menu);
+            });
             // Command is done
         }
     }
@@ -1015,6 +1281,7 @@ public class CommandClientImpl implements CommandClient, EventListener
     private void onMessageContextMenu(MessageContextInteractionEvent event)
     {
         final MessageContextMenu menu; // this will be null if it's not a command
+        final LongAdder counter;
         synchronized(contextMenuIndex)
         {
             ContextMenu c;
@@ -1023,9 +1290,15 @@ public class CommandClientImpl implements CommandClient, EventListener
             c = i != -1 ? contextMenus.get(i) : null;
 
             if (c instanceof MessageContextMenu)
+            {
                 menu = (MessageContextMenu) c;
+                counter = contextMenuUses.get(i);
+            }
             else
+            {
                 menu = null;
+                counter = null;
+            }
         }
 
         final MessageContextMenuEvent menuEvent = new MessageContextMenuEvent(event.getJDA(), event.getResponseNumber(), event,this);
@@ -1034,8 +1307,11 @@ public class CommandClientImpl implements CommandClient, EventListener
         {
             if(listener != null)
                 listener.onMessageContextMenu(menuEvent, menu);
-            uses.put(menu.getName(), uses.getOrDefault(menu.getName(), 0) + 1);
-            menu.run(menuEvent);
+            counter.increment();
+            dispatch(orderingKey(event.getGuild(), event.getChannelIdLong(), event.getUser()), menuEvent, menu, () -> menu.run(menuEvent), () -> {
+                if(listener != null)
+                    listener.onRejectedMessageContextMenu(menuEvent, menu);
+            });
             // Command is done
         }
     }
@@ -1152,6 +1428,57 @@ public class CommandClientImpl implements CommandClient, EventListener
         }
     }
 
+    private void evictIdleRateLimits()
+    {
+        // A failure would cancel the task, so it's logged instead
+        try
+        {
+            long now = System.currentTimeMillis();
+            List<Command> commands;
+            synchronized(commandIndex)
+            {
+                commands = new ArrayList<>(this.commands);
+            }
+            for(Command command : commands)
+                evictIdleRateLimits(command, now);
+            List<SlashCommand> slashCommands;
+            synchronized(slashCommandIndex)
+            {
+                slashCommands = new ArrayList<>(this.slashCommands);
+            }
+            for(SlashCommand command : slashCommands)
+            {
+                evictIdleRateLimits(command.getRateLimits(), now);
+                for(SlashCommand child : command.getChildren())
+                    evictIdleRateLimits(child.getRateLimits(), now);
+            }
+            List<ContextMenu> menus;
+            synchronized(contextMenuIndex)
+            {
+                menus = new ArrayList<>(contextMenus);
+            }
+            for(ContextMenu menu : menus)
+                evictIdleRateLimits(menu.getRateLimits(), now);
+        }
+        catch(Exception e)
+        {
+            LOG.error("Failed to evict idle rate limits", e);
+        }
+    }
+
+    private static void evictIdleRateLimits(Command command, long now)
+    {
+        evictIdleRateLimits(command.getRateLimits(), now);
+        for(Command child : command.getChildren())
+            evictIdleRateLimits(child, now);
+    }
+
+    private static void evictIdleRateLimits(RateLimit[] rateLimits, long now)
+    {
+        for(RateLimit rateLimit : rateLimits)
+            rateLimit.evictIdle(now);
+    }
+
     private GuildSettingsProvider provideSettings(Guild guild)
     {
         Object settings = getSettingsFor(guild);
@@ -1204,4 +1531,23 @@ public class CommandClientImpl implements CommandClient, EventListener
             this.args = args;
         }
     }
+
+    /**
+     * A registered command along with its use counter, which is resolved when the command is registered
+     * so dispatching it doesn't have to look the counter up by name.
+     */
+    private static final class Registered<C>
+    {
+        private final C command;
+        private final LongAdder uses;
+        // The registered children of a SlashCommand, in the same order as its children
+        private final List<Registered<C>> children;
+
+        private Registered(C command, LongAdder uses, List<Registered<C>> children)
+        {
+            this.command = command;
+            this.uses = uses;
+            this.children = children;
+        }
+    }
 }
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandMetrics;
+import com.jagrosh.jdautilities.command.ContextMenu;
+import com.jagrosh.jdautilities.command.Interaction;
+import com.jagrosh.jdautilities.command.SlashCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * {@link com.jagrosh.jdautilities.command.CommandMetrics CommandMetrics} that keep a latency histogram and outcome
+ * counters for every Command, SlashCommand and ContextMenu, to be pulled through {@link #getStats()}.
+ *
+ * <p>This is meant to be polled by whatever reports the metrics, such as a local HTTP endpoint or a task that
+ * periodically logs them:
+ * <pre><code>
+ * CommandMetricsRecorder recorder = new CommandMetricsRecorder();
+ * builder.setCommandMetrics(recorder);
+ * scheduler.scheduleAtFixedRate(() -&gt; recorder.getStats().forEach(stats -&gt; LOG.info(stats.toString())), 1, 1, TimeUnit.MINUTES);
+ * </code></pre>
+ *
+ * <p>Counts are kept for the lifetime of the recorder, and are never reset.
+ */
+public class CommandMetricsRecorder implements CommandMetrics
+{
+    private final ConcurrentHashMap<Interaction, Recorder> recorders = new ConcurrentHashMap<>();
+    private final Function<Interaction, Recorder> factory = Recorder::new;
+
+    @Override
+    public void recordCompletion(Interaction interaction, long nanos)
+    {
+        Recorder recorder = getRecorder(interaction);
+        recorder.completions.increment();
+        recorder.latency.record(nanos);
+    }
+
+    @Override
+    public void recordTermination(Interaction interaction, long nanos)
+    {
+        Recorder recorder = getRecorder(interaction);
+        recorder.terminations.increment();
+        recorder.latency.record(nanos);
+    }
+
+    @Override
+    public void recordException(Interaction interaction, Throwable throwable, long nanos)
+    {
+        Recorder recorder = getRecorder(interaction);
+        recorder.exceptions.increment();
+        recorder.latency.record(nanos);
+    }
+
+    @Override
+    public void recordRejection(Interaction interaction)
+    {
+        getRecorder(interaction).rejections.increment();
+    }
+
+    /**
+     * Gets the stats of every interaction that has been run at least once.
+     *
+     * @return A List of Stats, one per interaction
+     */
+    public List<Stats> getStats()
+    {
+        List<Stats> stats = new ArrayList<>(recorders.size());
+        for(Recorder recorder : recorders.values())
+            stats.add(recorder.snapshot());
+        return stats;
+    }
+
+    /**
+     * Gets the stats of the provided interaction.
+     *
+     * @param  interaction
+     *         The Command, SlashCommand or ContextMenu
+     *
+     * @return The Stats of the interaction, or {@code null} if it has never been run
+     */
+    public Stats getStats(Interaction interaction)
+    {
+        Recorder recorder = recorders.get(interaction);
+        return recorder == null ? null : recorder.snapshot();
+    }
+
+    private Recorder getRecorder(Interaction interaction)
+    {
+        Recorder recorder = recorders.get(interaction);
+        return recorder != null ? recorder : recorders.computeIfAbsent(interaction, factory);
+    }
+
+    private static final class Recorder
+    {
+        private final Interaction interaction;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder completions = new LongAdder();
+        private final LongAdder terminations = new LongAdder();
+        private final LongAdder exceptions = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+
+        private Recorder(Interaction interaction)
+        {
+            this.interaction = interaction;
+        }
+
+        private Stats snapshot()
+        {
+            return new Stats(interaction, latency.snapshot(), completions.sum(), terminations.sum(),
+                exceptions.sum(), rejections.sum());
+        }
+    }
+
+    /**
+     * A snapshot of the latencies and outcomes of a single Command, SlashCommand or ContextMenu.
+     *
+     * <p>Latencies are measured from when the interaction started running until it completed, was terminated
+     * or threw, and are accurate to within about 3%.
+     */
+    public static final class Stats
+    {
+        private final Interaction interaction;
+        private final LatencyHistogram.Snapshot latency;
+        private final long completions;
+        private final long terminations;
+        private final long exceptions;
+        private final long rejections;
+
+        private Stats(Interaction interaction, LatencyHistogram.Snapshot latency, long completions,
+                      long terminations, long exceptions, long rejections)
+        {
+            this.interaction = interaction;
+            this.latency = latency;
+            this.completions = completions;
+            this.terminations = terminations;
+            this.exceptions = exceptions;
+            this.rejections = rejections;
+        }
+
+        /**
+         * Gets the Command, SlashCommand or ContextMenu these stats are for.
+         *
+         * @return The interaction
+         */
+        public Interaction getInteraction()
+        {
+            return interaction;
+        }
+
+        /**
+         * Gets the name of the interaction these stats are for.
+         *
+         * @return The name of the interaction
+         */
+        public String getName()
+        {
+            if(interaction instanceof Command)
+                return ((Command) interaction).getName();
+            if(interaction instanceof ContextMenu)
+                return ((ContextMenu) interaction).getName();
+            return interaction.getClass().getSimpleName();
+        }
+
+        /**
+         * Gets the number of times the interaction completed without throwing.
+         *
+         * @return The number of completions
+         */
+        public long getCompletions()
+        {
+            return completions;
+        }
+
+        /**
+         * Gets the number of times the interaction was terminated by one of its checks.
+         *
+         * @return The number of terminations
+         */
+        public long getTerminations()
+        {
+            return terminations;
+        }
+
+        /**
+         * Gets the number of times the interaction threw while executing.
+         *
+         * @return The number of exceptions
+         */
+        public long getExceptions()
+        {
+            return exceptions;
+        }
+
+        /**
+         * Gets the number of times the interaction was rejected by the command executor, without running.
+         *
+         * @return The number of rejections
+         */
+        public long getRejections()
+        {
+            return rejections;
+        }
+
+        /**
+         * Gets the number of latencies recorded, which is the number of completions, terminations and exceptions.
+         *
+         * @return The number of latencies recorded
+         */
+        public long getCount()
+        {
+            return latency.getCount();
+        }
+
+        /**
+         * Gets the mean latency.
+         *
+         * @param  unit
+         *         The TimeUnit to get the latency in
+         *
+         * @return The mean latency
+         */
+        public double getMean(TimeUnit unit)
+        {
+            return latency.getMean() / unit.toNanos(1);
+        }
+
+        /**
+         * Gets the highest latency recorded.
+         *
+         * @param  unit
+         *         The TimeUnit to get the latency in
+         *
+         * @return The highest latency
+         */
+        public long getMax(TimeUnit unit)
+        {
+            return unit.convert(latency.getMax(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Gets the latency at the provided percentile, for example {@code 99.9} for p999.
+         *
+         * @param  percentile
+         *         The percentile, between {@code 0} and {@code 100}
+         * @param  unit
+         *         The TimeUnit to get the latency in
+         *
+         * @return The latency at the percentile, or {@code 0} if none were recorded
+         */
+        public long getPercentile(double percentile, TimeUnit unit)
+        {
+            return unit.convert(latency.getPercentile(percentile), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s: completed=%d terminated=%d exceptions=%d rejected=%d " +
+                                 "p50=%dus p99=%dus p999=%dus max=%dus",
+                getName(), completions, terminations, exceptions, rejections,
+                getPercentile(50, TimeUnit.MICROSECONDS), getPercentile(99, TimeUnit.MICROSECONDS),
+                getPercentile(99.9, TimeUnit.MICROSECONDS), getMax(TimeUnit.MICROSECONDS));
+        }
+    }
+}
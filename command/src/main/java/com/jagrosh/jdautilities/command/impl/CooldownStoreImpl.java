@@ -0,0 +1,281 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownScope;
+import com.jagrosh.jdautilities.command.CooldownStore;
+import net.dv8tion.jda.internal.utils.Checks;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default implementation for {@link com.jagrosh.jdautilities.command.CooldownStore CooldownStore}.
+ *
+ * <p>Cooldowns are kept in a {@link ConcurrentHashMap} as epoch milliseconds. Expired cooldowns are
+ * evicted in the background a batch at a time, so that cooldowns with wide scopes (IE: {@code USER_CHANNEL})
+ * don't pile up, without ever going over every cooldown at once.
+ *
+ * <p>Built-in command cooldowns are kept separately under primitive keys, made of an ordinal for the command
+ * name, the scope and its IDs, so checking them doesn't allocate. String keys in the format generated for a
+ * {@link CooldownScope CooldownScope} are resolved to the same primitive keys, so the String keyed methods
+ * (and {@link com.jagrosh.jdautilities.command.CommandClient#getRemainingCooldown(String) CommandClient#getRemainingCooldown(String)})
+ * see and change the same cooldowns as commands do.
+ */
+public class CooldownStoreImpl implements CooldownStore
+{
+    // The least number of cooldowns checked per sweep, larger stores check 1/16th of their cooldowns
+    private static final int MIN_SWEEP_BATCH = 1024;
+
+    private final ConcurrentHashMap<String, Long> cooldowns = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> commandOrdinals = new ConcurrentHashMap<>();
+    private final AtomicInteger nextOrdinal = new AtomicInteger();
+    private final CooldownTable commandCooldowns = new CooldownTable();
+    private final ScheduledFuture<?> sweeper;
+    private Iterator<Map.Entry<String, Long>> sweep;
+    private int sweepSegment;
+
+    /**
+     * Creates a CooldownStoreImpl that sweeps for expired cooldowns every second.
+     *
+     * @param  scheduler
+     *         The ScheduledExecutorService to sweep for expired cooldowns on
+     */
+    public CooldownStoreImpl(ScheduledExecutorService scheduler)
+    {
+        this(scheduler, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a CooldownStoreImpl that sweeps for expired cooldowns at the provided interval.
+     *
+     * @param  scheduler
+     *         The ScheduledExecutorService to sweep for expired cooldowns on
+     * @param  interval
+     *         The time between sweeps
+     * @param  unit
+     *         The TimeUnit of the interval
+     */
+    public CooldownStoreImpl(ScheduledExecutorService scheduler, long interval, TimeUnit unit)
+    {
+        Checks.notNull(scheduler, "Scheduler");
+        Checks.positive(interval, "Interval");
+        Checks.notNull(unit, "Unit");
+        this.sweeper = scheduler.scheduleWithFixedDelay(this::sweep, interval, interval, unit);
+    }
+
+    @Override
+    public long getExpiration(String key)
+    {
+        ScopedKey scoped = ScopedKey.parse(key);
+        if(scoped != null)
+        {
+            Integer ordinal = commandOrdinals.get(scoped.name);
+            return ordinal == null ? 0
+                : commandCooldowns.get(ordinal, scoped.scope.ordinal(), scoped.idOne, scoped.idTwo, System.currentTimeMillis());
+        }
+
+        Long expiration = cooldowns.get(key);
+        if(expiration == null)
+            return 0;
+        if(expiration <= System.currentTimeMillis())
+        {
+            // Only remove it if it wasn't reapplied in the meantime
+            cooldowns.remove(key, expiration);
+            return 0;
+        }
+        return expiration;
+    }
+
+    @Override
+    public void setExpiration(String key, long expiration)
+    {
+        ScopedKey scoped = ScopedKey.parse(key);
+        if(scoped != null)
+            commandCooldowns.set(commandOrdinal(scoped.name), scoped.scope.ordinal(), scoped.idOne, scoped.idTwo, expiration);
+        else
+            cooldowns.put(key, expiration);
+    }
+
+    @Override
+    public long tryAcquire(String key, long now, long expiration)
+    {
+        ScopedKey scoped = ScopedKey.parse(key);
+        if(scoped != null)
+            return commandCooldowns.tryAcquire(commandOrdinal(scoped.name), scoped.scope.ordinal(), scoped.idOne, scoped.idTwo, now, expiration);
+
+        long[] current = new long[1];
+        cooldowns.compute(key, (k, existing) -> {
+            if(existing != null && existing > now)
+            {
+                current[0] = existing;
+                return existing;
+            }
+            return expiration;
+        });
+        return current[0];
+    }
+
+    @Override
+    public long tryAcquire(String name, CooldownScope scope, long idOne, long idTwo, long now, long expiration)
+    {
+        // A name containing the separator can't be told apart from its key, so it takes the String path
+        if(name.indexOf('|') >= 0)
+            return CooldownStore.super.tryAcquire(name, scope, idOne, idTwo, now, expiration);
+        return commandCooldowns.tryAcquire(commandOrdinal(name), scope.ordinal(), idOne, idTwo, now, expiration);
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        ScopedKey scoped = ScopedKey.parse(key);
+        if(scoped != null)
+        {
+            Integer ordinal = commandOrdinals.get(scoped.name);
+            if(ordinal != null)
+                commandCooldowns.expire(ordinal, scoped.scope.ordinal(), scoped.idOne, scoped.idTwo);
+        }
+        else
+            cooldowns.remove(key);
+    }
+
+    @Override
+    public int size()
+    {
+        return cooldowns.size() + commandCooldowns.size();
+    }
+
+    @Override
+    public void evictExpired()
+    {
+        long now = System.currentTimeMillis();
+        cooldowns.entrySet().removeIf(entry -> entry.getValue() <= now);
+        for(int i = 0; i < commandCooldowns.segmentCount(); i++)
+            commandCooldowns.evictExpired(i, now);
+    }
+
+    @Override
+    public void shutdown()
+    {
+        sweeper.cancel(false);
+    }
+
+    // Runs on the scheduler, which never runs this concurrently with itself
+    private void sweep()
+    {
+        if(sweep == null || !sweep.hasNext())
+            sweep = cooldowns.entrySet().iterator();
+
+        long now = System.currentTimeMillis();
+        int batch = Math.max(MIN_SWEEP_BATCH, cooldowns.size() >> 4);
+        for(int i = 0; i < batch && sweep.hasNext(); i++)
+        {
+            Map.Entry<String, Long> entry = sweep.next();
+            if(entry.getValue() <= now)
+                cooldowns.remove(entry.getKey(), entry.getValue());
+        }
+
+        // One segment of the command cooldowns per sweep
+        commandCooldowns.evictExpired(sweepSegment, now);
+        sweepSegment = (sweepSegment + 1) % commandCooldowns.segmentCount();
+    }
+
+    private int commandOrdinal(String name)
+    {
+        Integer ordinal = commandOrdinals.get(name);
+        if(ordinal == null)
+            ordinal = commandOrdinals.computeIfAbsent(name, n -> nextOrdinal.incrementAndGet());
+        return ordinal;
+    }
+
+    /**
+     * The parts of a String key in the format generated for a {@link CooldownScope}, IE: {@code <command-name>|U:<userID>|C:<channelID>}.
+     */
+    private static final class ScopedKey
+    {
+        private final String name;
+        private final CooldownScope scope;
+        private final long idOne;
+        private final long idTwo;
+
+        private ScopedKey(String name, CooldownScope scope, long idOne, long idTwo)
+        {
+            this.name = name;
+            this.scope = scope;
+            this.idOne = idOne;
+            this.idTwo = idTwo;
+        }
+
+        /**
+         * @return The parts of the key, or {@code null} if it isn't in the format of any CooldownScope
+         */
+        static ScopedKey parse(String key)
+        {
+            int last = key.lastIndexOf('|');
+            if(last < 0)
+                return null;
+            if(key.length() == last + 7 && key.startsWith("Global", last + 1))
+                return new ScopedKey(key.substring(0, last), CooldownScope.GLOBAL, 0, -1);
+            if(key.length() < last + 4 || key.charAt(last + 2) != ':')
+                return null;
+
+            long id = parseId(key, last + 3, key.length());
+            if(id < 0)
+                return null;
+            CooldownScope single, withUser;
+            switch(key.charAt(last + 1))
+            {
+                case 'U': return new ScopedKey(key.substring(0, last), CooldownScope.USER, id, -1);
+                case 'C': single = CooldownScope.CHANNEL; withUser = CooldownScope.USER_CHANNEL; break;
+                case 'G': single = CooldownScope.GUILD;   withUser = CooldownScope.USER_GUILD;   break;
+                case 'S': single = CooldownScope.SHARD;   withUser = CooldownScope.USER_SHARD;   break;
+                default:  return null;
+            }
+
+            int previous = key.lastIndexOf('|', last - 1);
+            if(previous >= 0 && key.startsWith("U:", previous + 1))
+            {
+                long user = parseId(key, previous + 3, last);
+                if(user >= 0)
+                    return new ScopedKey(key.substring(0, previous), withUser, user, id);
+            }
+            return new ScopedKey(key.substring(0, last), single, id, -1);
+        }
+
+        // Only accepts IDs written the way CooldownScope writes them, so each cooldown has exactly one key
+        private static long parseId(String key, int start, int end)
+        {
+            if(start >= end || end - start > 19 || (key.charAt(start) == '0' && end - start > 1))
+                return -1;
+            long id = 0;
+            for(int i = start; i < end; i++)
+            {
+                char c = key.charAt(i);
+                if(c < '0' || c > '9')
+                    return -1;
+                id = id * 10 + (c - '0');
+                if(id < 0)
+                    return -1;
+            }
+            return id;
+        }
+    }
+}
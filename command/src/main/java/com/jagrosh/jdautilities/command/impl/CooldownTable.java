@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+/**
+ * A concurrent hash table of cooldown expiration times, keyed by a primitive composite of a
+ * command ordinal, a {@link com.jagrosh.jdautilities.command.CooldownScope CooldownScope} ordinal
+ * and up to two IDs.
+ *
+ * <p>The table is split into segments that are each locked separately, and each segment stores its
+ * entries in parallel primitive arrays with linear probing, so looking up or acquiring a cooldown
+ * never allocates.
+ */
+final class CooldownTable
+{
+    private static final int SEGMENT_BITS = 4;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    CooldownTable()
+    {
+        for(int i = 0; i < segments.length; i++)
+            segments[i] = new Segment();
+    }
+
+    /**
+     * Sets the expiration of the cooldown, unless it already has one that hasn't expired yet.
+     *
+     * @return {@code 0} if acquired, otherwise the existing expiration
+     */
+    long tryAcquire(int command, int scope, long idOne, long idTwo, long now, long expiration)
+    {
+        int meta = meta(command, scope);
+        long hash = hash(meta, idOne, idTwo);
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))].tryAcquire(meta, idOne, idTwo, (int) hash, now, expiration);
+    }
+
+    /**
+     * @return The expiration of the cooldown, or {@code 0} if there is none or it has expired
+     */
+    long get(int command, int scope, long idOne, long idTwo, long now)
+    {
+        int meta = meta(command, scope);
+        long hash = hash(meta, idOne, idTwo);
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))].get(meta, idOne, idTwo, (int) hash, now);
+    }
+
+    /**
+     * Sets the expiration of the cooldown, replacing any existing one.
+     */
+    void set(int command, int scope, long idOne, long idTwo, long expiration)
+    {
+        int meta = meta(command, scope);
+        long hash = hash(meta, idOne, idTwo);
+        segments[(int) (hash >>> (64 - SEGMENT_BITS))].set(meta, idOne, idTwo, (int) hash, expiration);
+    }
+
+    /**
+     * Expires the cooldown, if there is one. The entry itself is dropped the next time its segment is evicted.
+     */
+    void expire(int command, int scope, long idOne, long idTwo)
+    {
+        int meta = meta(command, scope);
+        long hash = hash(meta, idOne, idTwo);
+        segments[(int) (hash >>> (64 - SEGMENT_BITS))].expire(meta, idOne, idTwo, (int) hash);
+    }
+
+    int size()
+    {
+        int size = 0;
+        for(Segment segment : segments)
+            size += segment.size;
+        return size;
+    }
+
+    int segmentCount()
+    {
+        return segments.length;
+    }
+
+    void evictExpired(int segment, long now)
+    {
+        segments[segment].evictExpired(now);
+    }
+
+    // 0 marks an empty slot, so scopes are stored one higher
+    private static int meta(int command, int scope)
+    {
+        return (command << 4) | (scope + 1);
+    }
+
+    private static long hash(int meta, long idOne, long idTwo)
+    {
+        long h = idOne * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 29) ^ idTwo) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 32) ^ meta) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    private static final class Segment
+    {
+        private int[] metas = new int[INITIAL_CAPACITY];
+        private long[] idOnes = new long[INITIAL_CAPACITY];
+        private long[] idTwos = new long[INITIAL_CAPACITY];
+        private long[] expirations = new long[INITIAL_CAPACITY];
+        private volatile int size;
+
+        synchronized long tryAcquire(int meta, long idOne, long idTwo, int hash, long now, long expiration)
+        {
+            int slot = find(meta, idOne, idTwo, hash);
+            if(metas[slot] != 0)
+            {
+                if(expirations[slot] > now)
+                    return expirations[slot];
+                expirations[slot] = expiration;
+                return 0;
+            }
+
+            insert(slot, meta, idOne, idTwo, hash, now, expiration);
+            return 0;
+        }
+
+        synchronized void set(int meta, long idOne, long idTwo, int hash, long expiration)
+        {
+            int slot = find(meta, idOne, idTwo, hash);
+            if(metas[slot] != 0)
+                expirations[slot] = expiration;
+            else
+                insert(slot, meta, idOne, idTwo, hash, System.currentTimeMillis(), expiration);
+        }
+
+        synchronized void expire(int meta, long idOne, long idTwo, int hash)
+        {
+            int slot = find(meta, idOne, idTwo, hash);
+            if(metas[slot] != 0)
+                expirations[slot] = 0;
+        }
+
+        synchronized long get(int meta, long idOne, long idTwo, int hash, long now)
+        {
+            int slot = find(meta, idOne, idTwo, hash);
+            if(metas[slot] == 0 || expirations[slot] <= now)
+                return 0;
+            return expirations[slot];
+        }
+
+        synchronized void evictExpired(long now)
+        {
+            for(int i = 0; i < metas.length; i++)
+            {
+                if(metas[i] != 0 && expirations[i] <= now)
+                {
+                    // Only pay for a rebuild when something actually expired
+                    int capacity = metas.length;
+                    while(capacity > INITIAL_CAPACITY && size * 8 < capacity)
+                        capacity >>= 1;
+                    rehash(capacity, now);
+                    return;
+                }
+            }
+        }
+
+        // Inserts a key that isn't in the segment yet into the empty slot returned by find
+        private void insert(int slot, int meta, long idOne, long idTwo, int hash, long now, long expiration)
+        {
+            if((size + 1) * 4 > metas.length * 3)
+            {
+                rehash(metas.length * 2, now);
+                slot = find(meta, idOne, idTwo, hash);
+            }
+            metas[slot] = meta;
+            idOnes[slot] = idOne;
+            idTwos[slot] = idTwo;
+            expirations[slot] = expiration;
+            size++;
+        }
+
+        // Returns the slot holding the key, or the empty slot it would be inserted into
+        private int find(int meta, long idOne, long idTwo, int hash)
+        {
+            int mask = metas.length - 1;
+            int slot = hash & mask;
+            while(metas[slot] != 0)
+            {
+                if(metas[slot] == meta && idOnes[slot] == idOne && idTwos[slot] == idTwo)
+                    return slot;
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        // Rebuilds the segment with the provided capacity, dropping expired entries
+        private void rehash(int capacity, long now)
+        {
+            int[] oldMetas = metas;
+            long[] oldIdOnes = idOnes;
+            long[] oldIdTwos = idTwos;
+            long[] oldExpirations = expirations;
+
+            metas = new int[capacity];
+            idOnes = new long[capacity];
+            idTwos = new long[capacity];
+            expirations = new long[capacity];
+            int live = 0;
+            for(int i = 0; i < oldMetas.length; i++)
+            {
+                if(oldMetas[i] == 0 || oldExpirations[i] <= now)
+                    continue;
+                int slot = find(oldMetas[i], oldIdOnes[i], oldIdTwos[i], (int) hash(oldMetas[i], oldIdOnes[i], oldIdTwos[i]));
+                metas[slot] = oldMetas[i];
+                idOnes[slot] = oldIdOnes[i];
+                idTwos[slot] = oldIdTwos[i];
+                expirations[slot] = oldExpirations[i];
+                live++;
+            }
+            size = live;
+        }
+    }
+}
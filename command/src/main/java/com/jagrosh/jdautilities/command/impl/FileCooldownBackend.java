@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownBackend;
+import net.dv8tion.jda.internal.utils.Checks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * A {@link com.jagrosh.jdautilities.command.CooldownBackend CooldownBackend} sharing cooldowns between
+ * processes on the same machine through a file, made as a stand-in for a remote backend that doesn't
+ * need any outside services.
+ *
+ * <p>Every batch locks the whole file, reads all cooldowns, applies the batch, drops expired cooldowns and
+ * writes the result back. The file lock makes each batch atomic across processes, so cooldowns acquired
+ * by one cluster are seen by all others using the same file. Calls are run on a single background thread.
+ */
+public class FileCooldownBackend implements CooldownBackend
+{
+    private static final Logger LOG = LoggerFactory.getLogger(FileCooldownBackend.class);
+
+    // FileLocks are held by the whole process, so backends in the same process using the same file take turns here
+    private static final ConcurrentHashMap<Path, Object> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final FileChannel channel;
+    private final Object processLock;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a FileCooldownBackend using the file at the provided path, which is created if it doesn't exist.
+     *
+     * @param  path
+     *         The path of the file to keep cooldowns in
+     *
+     * @throws IOException
+     *         If the file can't be opened
+     */
+    public FileCooldownBackend(Path path) throws IOException
+    {
+        Checks.notNull(path, "Path");
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.processLock = PROCESS_LOCKS.computeIfAbsent(path.toRealPath(), p -> new Object());
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "FileCooldownBackend");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<long[]> acquire(String[] keys, long[] expirations, long now)
+    {
+        return update(now, true, cooldowns -> {
+            long[] results = new long[keys.length];
+            for(int i = 0; i < keys.length; i++)
+            {
+                Long existing = cooldowns.get(keys[i]);
+                if(existing != null && existing > now)
+                    results[i] = existing;
+                else
+                    cooldowns.put(keys[i], expirations[i]);
+            }
+            return results;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> release(String[] keys)
+    {
+        return update(System.currentTimeMillis(), true, cooldowns -> {
+            for(String key : keys)
+                cooldowns.remove(key);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<long[]> fetch(String[] keys, long now)
+    {
+        return update(now, false, cooldowns -> {
+            long[] results = new long[keys.length];
+            for(int i = 0; i < keys.length; i++)
+                results[i] = cooldowns.getOrDefault(keys[i], 0L);
+            return results;
+        });
+    }
+
+    @Override
+    public void shutdown()
+    {
+        executor.shutdown();
+        try
+        {
+            channel.close();
+        }
+        catch(IOException e)
+        {
+            LOG.error("Failed to close the cooldown file", e);
+        }
+    }
+
+    private <T> CompletableFuture<T> update(long now, boolean modifies, Function<Map<String, Long>, T> batch)
+    {
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized(processLock)
+            {
+                try
+                {
+                    FileLock lock = channel.lock();
+                    try
+                    {
+                        Map<String, Long> cooldowns = read(now);
+                        T result = batch.apply(cooldowns);
+                        if(modifies)
+                            write(cooldowns);
+                        return result;
+                    }
+                    finally
+                    {
+                        lock.release();
+                    }
+                }
+                catch(IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }, executor);
+    }
+
+    private Map<String, Long> read(long now) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while(buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0);
+        Map<String, Long> cooldowns = new HashMap<>();
+        if(buffer.capacity() == 0)
+            return cooldowns;
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        int size = in.readInt();
+        for(int i = 0; i < size; i++)
+        {
+            String key = in.readUTF();
+            long expiration = in.readLong();
+            if(expiration > now)
+                cooldowns.put(key, expiration);
+        }
+        return cooldowns;
+    }
+
+    private void write(Map<String, Long> cooldowns) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(cooldowns.size());
+        for(Map.Entry<String, Long> entry : cooldowns.entrySet())
+        {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        out.flush();
+
+        channel.truncate(bytes.size());
+        channel.write(ByteBuffer.wrap(bytes.toByteArray()), 0);
+        channel.force(false);
+    }
+}
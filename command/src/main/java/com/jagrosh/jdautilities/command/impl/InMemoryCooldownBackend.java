@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownBackend;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A reference {@link com.jagrosh.jdautilities.command.CooldownBackend CooldownBackend} keeping cooldowns
+ * in memory, completing every call right away.
+ *
+ * <p>This only shares cooldowns between the {@link com.jagrosh.jdautilities.command.CommandClient CommandClients}
+ * of a single process that use the same instance, and mostly serves as an example and for testing.
+ */
+public class InMemoryCooldownBackend implements CooldownBackend
+{
+    private static final int MIN_EVICTION_THRESHOLD = 1024;
+
+    private final ConcurrentHashMap<String, Long> cooldowns = new ConcurrentHashMap<>();
+    private volatile int evictionThreshold = MIN_EVICTION_THRESHOLD;
+
+    @Override
+    public CompletableFuture<long[]> acquire(String[] keys, long[] expirations, long now)
+    {
+        if(cooldowns.size() >= evictionThreshold)
+            evictExpired(now);
+
+        long[] results = new long[keys.length];
+        for(int i = 0; i < keys.length; i++)
+        {
+            long expiration = expirations[i];
+            int index = i;
+            cooldowns.compute(keys[i], (k, existing) -> {
+                if(existing != null && existing > now)
+                {
+                    results[index] = existing;
+                    return existing;
+                }
+                return expiration;
+            });
+        }
+        return CompletableFuture.completedFuture(results);
+    }
+
+    @Override
+    public CompletableFuture<Void> release(String[] keys)
+    {
+        for(String key : keys)
+            cooldowns.remove(key);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<long[]> fetch(String[] keys, long now)
+    {
+        long[] results = new long[keys.length];
+        for(int i = 0; i < keys.length; i++)
+        {
+            Long expiration = cooldowns.get(keys[i]);
+            results[i] = expiration == null || expiration <= now ? 0 : expiration;
+        }
+        return CompletableFuture.completedFuture(results);
+    }
+
+    // Evicts whenever the number of cooldowns doubles, so this costs a constant amount per call on average
+    private synchronized void evictExpired(long now)
+    {
+        if(cooldowns.size() < evictionThreshold)
+            return;
+        cooldowns.values().removeIf(expiration -> expiration <= now);
+        evictionThreshold = Math.max(MIN_EVICTION_THRESHOLD, cooldowns.size() * 2);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownScope;
+import com.jagrosh.jdautilities.command.RateLimit;
+import net.dv8tion.jda.internal.utils.Checks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Base for {@link RateLimit RateLimits} keeping some state per key.
+ *
+ * <p>Idle state is only evicted by {@link #evictIdle(long)}, which the CommandClient calls on its scheduler,
+ * so checking a use never goes over the state of other keys.
+ *
+ * @param  <S>
+ *         The type of state kept per key
+ */
+abstract class KeyedRateLimit<S extends KeyedRateLimit.State> implements RateLimit
+{
+    private final ConcurrentHashMap<String, S> states = new ConcurrentHashMap<>();
+    private final Function<String, S> factory = key -> createState();
+    private final CooldownScope scope;
+
+    KeyedRateLimit(CooldownScope scope)
+    {
+        Checks.notNull(scope, "Scope");
+        this.scope = scope;
+    }
+
+    @Override
+    public CooldownScope getScope()
+    {
+        return scope;
+    }
+
+    @Override
+    public long tryAcquire(String key, long now)
+    {
+        while(true)
+        {
+            S state = states.get(key);
+            if(state == null)
+                state = states.computeIfAbsent(key, factory);
+            synchronized(state)
+            {
+                // A state evicted after it was looked up has been replaced, so the use is counted in its replacement
+                if(!state.evicted)
+                    return tryAcquire(state, now);
+            }
+        }
+    }
+
+    @Override
+    public void refund(String key, long now)
+    {
+        // An evicted state was idle, so there is nothing left to give back
+        S state = states.get(key);
+        if(state == null)
+            return;
+        synchronized(state)
+        {
+            if(!state.evicted)
+                refund(state, now);
+        }
+    }
+
+    @Override
+    public void evictIdle(long now)
+    {
+        for(Map.Entry<String, S> entry : states.entrySet())
+        {
+            S state = entry.getValue();
+            synchronized(state)
+            {
+                if(!state.evicted && isIdle(state, now))
+                {
+                    state.evicted = true;
+                    states.remove(entry.getKey(), state);
+                }
+            }
+        }
+    }
+
+    abstract S createState();
+
+    // Called while holding the state's lock
+    abstract long tryAcquire(S state, long now);
+
+    // Called while holding the state's lock
+    abstract void refund(S state, long now);
+
+    // Called while holding the state's lock
+    abstract boolean isIdle(S state, long now);
+
+    static abstract class State
+    {
+        // Set under the state's lock when it's removed, so a use that already got it looks it up again
+        boolean evicted;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks on a backing {@link Executor} so that tasks submitted with the same key
+ * run one after the other, in submission order, while tasks with different keys run in parallel.
+ *
+ * <p>Each key only holds a lane while it has tasks queued or running, and every task is handed to
+ * the backing Executor separately, so one busy key can't keep a thread to itself.
+ * <br>Tasks are never run on the thread submitting them: if the backing Executor rejects the start of a lane,
+ * the tasks queued in it are rejected along with it.
+ */
+final class KeyedSerialExecutor
+{
+    private final Executor executor;
+    private final ConcurrentHashMap<Long, ArrayDeque<Task>> lanes = new ConcurrentHashMap<>();
+
+    KeyedSerialExecutor(Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues the task behind any other task with the same key.
+     *
+     * @param  key
+     *         The key to order the task by
+     * @param  task
+     *         The task to run
+     * @param  rejected
+     *         Run instead of the task if it was queued behind a task whose lane the backing Executor rejected
+     *
+     * @throws java.util.concurrent.RejectedExecutionException
+     *         If the task starts a new lane and the backing Executor rejects it
+     */
+    void execute(long key, Runnable task, Runnable rejected)
+    {
+        Task entry = new Task(task, rejected);
+        boolean[] started = new boolean[1];
+        ArrayDeque<Task> lane = lanes.compute(key, (k, queue) -> {
+            if(queue == null)
+            {
+                queue = new ArrayDeque<>();
+                started[0] = true;
+            }
+            synchronized(queue)
+            {
+                queue.add(entry);
+            }
+            return queue;
+        });
+
+        if(!started[0])
+            return;
+
+        try
+        {
+            executor.execute(() -> runNext(key, lane));
+        }
+        catch(RejectedExecutionException ex)
+        {
+            // Tasks queued behind ours in the meantime can't be started either, and running them here
+            // would run them on the submitting thread, so they are rejected with it.
+            lanes.remove(key, lane);
+            List<Task> queued;
+            synchronized(lane)
+            {
+                lane.pollFirst();
+                queued = new ArrayList<>(lane);
+                lane.clear();
+            }
+            for(Task next : queued)
+                next.rejected.run();
+            throw ex;
+        }
+    }
+
+    int getActiveLanes()
+    {
+        return lanes.size();
+    }
+
+    private void runNext(long key, ArrayDeque<Task> lane)
+    {
+        Task task;
+        synchronized(lane)
+        {
+            task = lane.peekFirst();
+        }
+        try
+        {
+            task.task.run();
+        }
+        finally
+        {
+            if(hasNext(key))
+            {
+                try
+                {
+                    executor.execute(() -> runNext(key, lane));
+                }
+                catch(RejectedExecutionException ex)
+                {
+                    // The executor is full or shut down, finish the lane on this worker rather than stranding it
+                    drain(key, lane);
+                }
+            }
+        }
+    }
+
+    private void drain(long key, ArrayDeque<Task> lane)
+    {
+        do
+        {
+            Task task;
+            synchronized(lane)
+            {
+                task = lane.peekFirst();
+            }
+            task.task.run();
+        }
+        while(hasNext(key));
+    }
+
+    // Removes the finished task at the head of the lane, and the lane itself once it is empty
+    private boolean hasNext(long key)
+    {
+        boolean[] next = new boolean[1];
+        lanes.computeIfPresent(key, (k, queue) -> {
+            synchronized(queue)
+            {
+                queue.pollFirst();
+                next[0] = !queue.isEmpty();
+            }
+            return next[0] ? queue : null;
+        });
+        return next[0];
+    }
+
+    private static final class Task
+    {
+        final Runnable task;
+        final Runnable rejected;
+
+        Task(Runnable task, Runnable rejected)
+        {
+            this.task = task;
+            this.rejected = rejected;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A case-insensitive trie of command prefixes, used by the {@link CommandClientImpl CommandClientImpl}
+ * to find the prefix a message starts with without lower casing the message.
+ */
+final class PrefixTrie
+{
+    private final Node root = new Node();
+
+    PrefixTrie(Collection<String> prefixes)
+    {
+        for(String prefix : prefixes)
+        {
+            if(prefix == null)
+                continue;
+            Node node = root;
+            for(int i = 0; i < prefix.length(); i++)
+                node = node.getOrAdd(Character.toLowerCase(prefix.charAt(i)));
+            node.terminal = true;
+        }
+    }
+
+    /**
+     * Finds the longest prefix the provided content starts with, ignoring case.
+     *
+     * @param  content
+     *         The content to check
+     *
+     * @return The length of the longest prefix found, or {@code -1} if the content doesn't start with any
+     */
+    int match(String content)
+    {
+        int longest = root.terminal ? 0 : -1;
+        Node node = root;
+        for(int i = 0; i < content.length(); i++)
+        {
+            node = node.get(Character.toLowerCase(content.charAt(i)));
+            if(node == null)
+                break;
+            if(node.terminal)
+                longest = i + 1;
+        }
+        return longest;
+    }
+
+    private static final class Node
+    {
+        // Prefixes share very few characters, so a small array beats a map here
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private boolean terminal;
+
+        Node get(char c)
+        {
+            for(int i = 0; i < keys.length; i++)
+            {
+                if(keys[i] == c)
+                    return children[i];
+            }
+            return null;
+        }
+
+        Node getOrAdd(char c)
+        {
+            Node node = get(c);
+            if(node == null)
+            {
+                node = new Node();
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = c;
+                children[children.length - 1] = node;
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownScope;
+import net.dv8tion.jda.internal.utils.Checks;
+
+/**
+ * A sliding window counter {@link com.jagrosh.jdautilities.command.RateLimit RateLimit}.
+ *
+ * <p>Every key counts its uses in fixed windows. The number of uses in the sliding window ending now is
+ * estimated as the count of the current fixed window, plus the count of the previous one weighed by how much
+ * of it the sliding window still overlaps. This only keeps two counters per key, unlike a log of every use.
+ *
+ * @see com.jagrosh.jdautilities.command.RateLimit#slidingWindow(int, long, java.util.concurrent.TimeUnit, CooldownScope)
+ */
+public class SlidingWindowRateLimit extends KeyedRateLimit<SlidingWindowRateLimit.Counter>
+{
+    private final int limit;
+    private final long window;
+
+    /**
+     * Creates a SlidingWindowRateLimit.
+     *
+     * @param  limit
+     *         The number of uses allowed in the window
+     * @param  window
+     *         The length of the window in milliseconds
+     * @param  scope
+     *         The CooldownScope to apply the rate limit in
+     */
+    public SlidingWindowRateLimit(int limit, long window, CooldownScope scope)
+    {
+        super(scope);
+        Checks.positive(limit, "Limit");
+        Checks.positive(window, "Window");
+        this.limit = limit;
+        this.window = window;
+    }
+
+    /**
+     * Gets the number of uses allowed in the window.
+     *
+     * @return The limit
+     */
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * Gets the length of the window in milliseconds.
+     *
+     * @return The window
+     */
+    public long getWindow()
+    {
+        return window;
+    }
+
+    @Override
+    Counter createState()
+    {
+        return new Counter();
+    }
+
+    @Override
+    long tryAcquire(Counter counter, long now)
+    {
+        roll(counter, now);
+        long elapsed = now - counter.start;
+        double previousWeight = (double) (window - elapsed) / window;
+        if(counter.previous * previousWeight + counter.current < limit)
+        {
+            counter.current++;
+            return 0;
+        }
+
+        // The current window alone is full, wait for it to become the previous one
+        if(counter.current >= limit)
+            return window - elapsed;
+
+        // Otherwise wait until enough of the previous window has slid out
+        double weightNeeded = (double) (limit - counter.current) / counter.previous;
+        return Math.max(1, (long) Math.ceil(window * (1 - weightNeeded)) - elapsed);
+    }
+
+    @Override
+    void refund(Counter counter, long now)
+    {
+        // Not rolled, as another use may have moved the counter past the window the use was counted in
+        long start = now - Math.floorMod(now, window);
+        if(start == counter.start && counter.current > 0)
+            counter.current--;
+        else if(start == counter.start - window && counter.previous > 0)
+            counter.previous--;
+    }
+
+    @Override
+    boolean isIdle(Counter counter, long now)
+    {
+        roll(counter, now);
+        return counter.current == 0 && counter.previous == 0;
+    }
+
+    private void roll(Counter counter, long now)
+    {
+        long start = now - Math.floorMod(now, window);
+        if(start == counter.start)
+            return;
+        counter.previous = start - counter.start == window ? counter.current : 0;
+        counter.current = 0;
+        counter.start = start;
+    }
+
+    static final class Counter extends KeyedRateLimit.State
+    {
+        private long start;
+        private int previous;
+        private int current;
+    }
+}
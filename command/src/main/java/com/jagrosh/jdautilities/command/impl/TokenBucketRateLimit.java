@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownScope;
+import net.dv8tion.jda.internal.utils.Checks;
+
+/**
+ * A token bucket {@link com.jagrosh.jdautilities.command.RateLimit RateLimit}.
+ *
+ * <p>Every key has a bucket of up to {@code capacity} tokens, and every use takes one.
+ * Tokens are refilled evenly, so an empty bucket is full again after the period.
+ *
+ * @see com.jagrosh.jdautilities.command.RateLimit#tokenBucket(int, long, java.util.concurrent.TimeUnit, CooldownScope)
+ */
+public class TokenBucketRateLimit extends KeyedRateLimit<TokenBucketRateLimit.Bucket>
+{
+    private final int capacity;
+    private final long period;
+    // Milliseconds it takes to refill a single token
+    private final double refillTime;
+
+    /**
+     * Creates a TokenBucketRateLimit.
+     *
+     * @param  capacity
+     *         The number of tokens in a full bucket
+     * @param  period
+     *         The number of milliseconds it takes to refill an empty bucket
+     * @param  scope
+     *         The CooldownScope to apply the rate limit in
+     */
+    public TokenBucketRateLimit(int capacity, long period, CooldownScope scope)
+    {
+        super(scope);
+        Checks.positive(capacity, "Capacity");
+        Checks.positive(period, "Period");
+        this.capacity = capacity;
+        this.period = period;
+        this.refillTime = (double) period / capacity;
+    }
+
+    /**
+     * Gets the number of tokens in a full bucket.
+     *
+     * @return The capacity
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of milliseconds it takes to refill an empty bucket.
+     *
+     * @return The period
+     */
+    public long getPeriod()
+    {
+        return period;
+    }
+
+    @Override
+    Bucket createState()
+    {
+        return new Bucket(capacity);
+    }
+
+    @Override
+    long tryAcquire(Bucket bucket, long now)
+    {
+        refill(bucket, now);
+        if(bucket.tokens >= 1)
+        {
+            bucket.tokens--;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - bucket.tokens) * refillTime));
+    }
+
+    @Override
+    void refund(Bucket bucket, long now)
+    {
+        bucket.tokens = Math.min(capacity, bucket.tokens + 1);
+    }
+
+    @Override
+    boolean isIdle(Bucket bucket, long now)
+    {
+        refill(bucket, now);
+        return bucket.tokens >= capacity;
+    }
+
+    private void refill(Bucket bucket, long now)
+    {
+        if(now > bucket.updated)
+        {
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.updated) / refillTime);
+            bucket.updated = now;
+        }
+    }
+
+    static final class Bucket extends KeyedRateLimit.State
+    {
+        private double tokens;
+        // Starts at 0, so the first refill simply fills the bucket
+        private long updated;
+
+        private Bucket(double tokens)
+        {
+            this.tokens = tokens;
+        }
+    }
+}
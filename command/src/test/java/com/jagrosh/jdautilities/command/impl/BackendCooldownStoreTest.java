@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownBackend;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BackendCooldownStoreTest
+{
+    private static final String KEY = "ping|U:1";
+
+    private ScheduledExecutorService scheduler;
+    private RecordingBackend backend;
+    private BackendCooldownStore store;
+
+    @Before
+    public void setUp()
+    {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        backend = new RecordingBackend();
+        store = new BackendCooldownStore(backend, scheduler, 20, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown()
+    {
+        store.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testFallsBackToCacheOnTimeout()
+    {
+        long now = System.currentTimeMillis();
+        CompletableFuture<long[]> pending = backend.hold();
+
+        // The backend doesn't answer in time, so the cooldown is acquired locally
+        assertEquals(0, store.tryAcquire(KEY, now, now + 60_000));
+        assertEquals(now + 60_000, store.tryAcquire(KEY, now, now + 60_000));
+
+        // Once it answers that another process holds the cooldown, the cache is corrected
+        pending.complete(new long[]{now + 90_000});
+        assertEquals(now + 90_000, store.getExpiration(KEY));
+    }
+
+    @Test
+    public void testRemoveThenAcquireIsSentInOrder()
+    {
+        long now = System.currentTimeMillis();
+        backend.delegate.acquire(new String[]{KEY}, new long[]{now + 90_000}, now);
+        CompletableFuture<long[]> pending = backend.hold();
+        store.tryAcquire("other", now, now + 60_000);
+
+        // Both are queued behind the batch in flight, and sent in one flush once it's done
+        store.remove(KEY);
+        assertEquals(0, store.tryAcquire(KEY, now, now + 60_000));
+        pending.complete(new long[]{0});
+
+        assertEquals(Arrays.asList("acquire other", "release " + KEY, "acquire " + KEY), backend.calls);
+        assertArrayEquals(new long[]{now + 60_000}, backend.delegate.fetch(new String[]{KEY}, now).join());
+        // The stale cooldown from before the removal isn't cached
+        assertEquals(now + 60_000, store.getExpiration(KEY));
+    }
+
+    @Test
+    public void testSetExpirationIsQueued()
+    {
+        long now = System.currentTimeMillis();
+        backend.delegate.acquire(new String[]{KEY}, new long[]{now + 90_000}, now);
+        CompletableFuture<long[]> pending = backend.hold();
+        store.tryAcquire("other", now, now + 60_000);
+
+        // Nothing is sent until the batch in flight is done
+        store.setExpiration(KEY, now + 30_000);
+        assertEquals(Collections.singletonList("acquire other"), backend.calls);
+        assertEquals(now + 30_000, store.getExpiration(KEY));
+
+        pending.complete(new long[]{0});
+        assertEquals(Arrays.asList("acquire other", "release " + KEY, "acquire " + KEY), backend.calls);
+        assertArrayEquals(new long[]{now + 30_000}, backend.delegate.fetch(new String[]{KEY}, now).join());
+    }
+
+    // Records the calls made to an InMemoryCooldownBackend, and can hold back the answer to the next acquire
+    private static final class RecordingBackend implements CooldownBackend
+    {
+        private final InMemoryCooldownBackend delegate = new InMemoryCooldownBackend();
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        private volatile CompletableFuture<long[]> held;
+
+        CompletableFuture<long[]> hold()
+        {
+            return held = new CompletableFuture<>();
+        }
+
+        @Override
+        public CompletableFuture<long[]> acquire(String[] keys, long[] expirations, long now)
+        {
+            calls.add("acquire " + String.join(", ", keys));
+            CompletableFuture<long[]> future = held;
+            held = null;
+            return future != null ? future : delegate.acquire(keys, expirations, now);
+        }
+
+        @Override
+        public CompletableFuture<Void> release(String[] keys)
+        {
+            calls.add("release " + String.join(", ", keys));
+            return delegate.release(keys);
+        }
+
+        @Override
+        public CompletableFuture<long[]> fetch(String[] keys, long now)
+        {
+            return delegate.fetch(keys, now);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares how command lookups scale with the number of threads doing them, between looking commands up
+ * under a lock on the name index, the way the {@link CommandClientImpl CommandClientImpl} used to, and
+ * reading the immutable snapshot table it now swaps in whenever commands are added or removed.
+ *
+ * <p>This isn't run with the tests, run its main method to get the numbers.
+ */
+public class CommandLookupBenchmark
+{
+    private static final int MAX_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int LOOKUPS = 2_000_000;
+    private static final int COMMANDS = 50;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    private static volatile long sink;
+
+    private final Map<String, Integer> commandIndex = new HashMap<>();
+    private final List<String> commands = new ArrayList<>();
+    private volatile Map<String, String> commandTable;
+    private final String[] names = new String[COMMANDS * 2];
+
+    private CommandLookupBenchmark()
+    {
+        for(int i = 0; i < COMMANDS; i++)
+        {
+            String name = "command" + i;
+            commands.add(name);
+            commandIndex.put(name, i);
+            commandIndex.put("alias" + i, i);
+            names[i * 2] = name;
+            names[i * 2 + 1] = "alias" + i;
+        }
+        Map<String, String> table = new HashMap<>();
+        commandIndex.forEach((name, i) -> table.put(name, commands.get(i)));
+        commandTable = Collections.unmodifiableMap(table);
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        CommandLookupBenchmark benchmark = new CommandLookupBenchmark();
+        for(int threads = 1; threads <= MAX_THREADS; threads *= 2)
+        {
+            benchmark.report("locked index", threads, benchmark::lockedLookup);
+            benchmark.report("snapshot table", threads, benchmark::snapshotLookup);
+        }
+    }
+
+    private String lockedLookup(String name)
+    {
+        synchronized(commandIndex)
+        {
+            int i = commandIndex.getOrDefault(name, -1);
+            return i == -1 ? null : commands.get(i);
+        }
+    }
+
+    private String snapshotLookup(String name)
+    {
+        return commandTable.get(name);
+    }
+
+    private void report(String name, int threads, Lookup lookup) throws InterruptedException
+    {
+        for(int i = 0; i < WARMUP_ROUNDS; i++)
+            run(threads, lookup);
+        long best = Long.MAX_VALUE;
+        for(int i = 0; i < ROUNDS; i++)
+            best = Math.min(best, run(threads, lookup));
+        System.out.printf("%-14s %2d threads %,14d lookups/s%n", name, threads,
+            (long) LOOKUPS * threads * TimeUnit.SECONDS.toNanos(1) / best);
+    }
+
+    private long run(int threads, Lookup lookup) throws InterruptedException
+    {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++)
+        {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                try
+                {
+                    start.await();
+                }
+                catch(InterruptedException e)
+                {
+                    return;
+                }
+                long found = 0;
+                for(int i = 0; i < LOOKUPS; i++)
+                {
+                    if(lookup.find(names[(i + offset) % names.length]) != null)
+                        found++;
+                }
+                sink += found;
+                done.countDown();
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - begin;
+    }
+
+    private interface Lookup
+    {
+        String find(String name);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownScope;
+import com.jagrosh.jdautilities.command.CooldownStore;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Compares checking {@link CooldownScope#USER_GUILD USER_GUILD} cooldowns under String keys, both built
+ * with {@link String#format(String, Object...)} the way they used to be and built by the scope itself,
+ * with checking them under primitive keys in a {@link CooldownStoreImpl CooldownStoreImpl}.
+ *
+ * <p>This isn't run with the tests, run its main method to get the numbers.
+ */
+public class CooldownKeyBenchmark
+{
+    private static final int CHECKS = 2_000_000;
+    private static final int USERS = 10_000;
+    private static final long GUILD = 81384788765712384L;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile long sink;
+
+    public static void main(String[] args)
+    {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            StringKeyedStore formatted = new StringKeyedStore();
+            report("String.format key", (user, now) ->
+                formatted.tryAcquire("ping|" + String.format("U:%d|G:%d", user, GUILD), now, now + 60_000));
+            StringKeyedStore generated = new StringKeyedStore();
+            report("String key", (user, now) ->
+                generated.tryAcquire("ping", CooldownScope.USER_GUILD, user, GUILD, now, now + 60_000));
+            CooldownStoreImpl primitive = new CooldownStoreImpl(scheduler);
+            report("primitive key", (user, now) ->
+                primitive.tryAcquire("ping", CooldownScope.USER_GUILD, user, GUILD, now, now + 60_000));
+        }
+        finally
+        {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void report(String name, Check check)
+    {
+        for(int i = 0; i < WARMUP_ROUNDS; i++)
+            run(check);
+        long best = Long.MAX_VALUE;
+        long bytes = 0;
+        long threadId = Thread.currentThread().getId();
+        for(int i = 0; i < ROUNDS; i++)
+        {
+            long allocated = THREADS.getThreadAllocatedBytes(threadId);
+            best = Math.min(best, run(check));
+            bytes = THREADS.getThreadAllocatedBytes(threadId) - allocated;
+        }
+        System.out.printf("%-17s %6.1f ns/check %8.2f bytes/check%n",
+            name, (double) best / CHECKS, (double) bytes / CHECKS);
+    }
+
+    private static long run(Check check)
+    {
+        long now = System.currentTimeMillis();
+        long acquired = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < CHECKS; i++)
+        {
+            // Most checks find the cooldown of an earlier check, like a user repeating a command
+            if(check.tryAcquire(i % USERS, now) == 0)
+                acquired++;
+        }
+        long time = System.nanoTime() - start;
+        sink += acquired;
+        return time;
+    }
+
+    private interface Check
+    {
+        long tryAcquire(long user, long now);
+    }
+
+    // Keeps cooldowns under their String keys only, like any custom CooldownStore.
+    // None of them expire during the benchmark, so expired cooldowns are never replaced
+    private static final class StringKeyedStore implements CooldownStore
+    {
+        private final ConcurrentHashMap<String, Long> cooldowns = new ConcurrentHashMap<>();
+
+        @Override
+        public long getExpiration(String key)
+        {
+            return cooldowns.getOrDefault(key, 0L);
+        }
+
+        @Override
+        public void setExpiration(String key, long expiration)
+        {
+            cooldowns.put(key, expiration);
+        }
+
+        @Override
+        public long tryAcquire(String key, long now, long expiration)
+        {
+            Long current = cooldowns.putIfAbsent(key, expiration);
+            return current == null ? 0 : current;
+        }
+
+        @Override
+        public void remove(String key)
+        {
+            cooldowns.remove(key);
+        }
+
+        @Override
+        public int size()
+        {
+            return cooldowns.size();
+        }
+
+        @Override
+        public void evictExpired() {}
+    }
+}
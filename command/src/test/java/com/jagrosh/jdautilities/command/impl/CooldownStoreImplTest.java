@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownScope;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+
+public class CooldownStoreImplTest
+{
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 200;
+
+    private ScheduledExecutorService scheduler;
+    private CooldownStoreImpl store;
+
+    @Before
+    public void setUp()
+    {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        store = new CooldownStoreImpl(scheduler);
+    }
+
+    @After
+    public void tearDown()
+    {
+        store.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testExactlyOneRacingStringAcquireWins() throws Exception
+    {
+        for(int round = 0; round < ROUNDS; round++)
+        {
+            String key = "ping|U:" + round;
+            long now = System.currentTimeMillis();
+            assertEquals(1, race(() -> store.tryAcquire(key, now, now + 60_000)));
+        }
+    }
+
+    @Test
+    public void testExactlyOneRacingScopedAcquireWins() throws Exception
+    {
+        for(int round = 0; round < ROUNDS; round++)
+        {
+            long user = round;
+            long now = System.currentTimeMillis();
+            assertEquals(1, race(() -> store.tryAcquire("ping", CooldownScope.USER_GUILD, user, 42, now, now + 60_000)));
+        }
+    }
+
+    @Test
+    public void testStringKeysSeeScopedCooldowns()
+    {
+        long now = System.currentTimeMillis();
+        assertEquals(0, store.tryAcquire("ping", CooldownScope.USER_CHANNEL, 1, 2, now, now + 60_000));
+        assertEquals(now + 60_000, store.getExpiration("ping|U:1|C:2"));
+        assertEquals(0, store.getExpiration("ping|C:2"));
+
+        store.remove("ping|U:1|C:2");
+        assertEquals(0, store.tryAcquire("ping", CooldownScope.USER_CHANNEL, 1, 2, now, now + 30_000));
+
+        store.setExpiration("ping|Global", now + 60_000);
+        assertEquals(now + 60_000, store.tryAcquire("ping", CooldownScope.GLOBAL, 0, -1, now, now + 30_000));
+        assertEquals(now + 60_000, store.tryAcquire("ping|Global", now, now + 30_000));
+    }
+
+    @Test
+    public void testNamesWithSeparatorMatchTheirStringKeys()
+    {
+        long now = System.currentTimeMillis();
+        assertEquals(0, store.tryAcquire("a|U:1", CooldownScope.CHANNEL, 2, -1, now, now + 60_000));
+        assertEquals(now + 60_000, store.getExpiration("a|U:1|C:2"));
+        assertEquals(now + 60_000, store.tryAcquire("a", CooldownScope.USER_CHANNEL, 1, 2, now, now + 30_000));
+        assertEquals(0, store.getExpiration("ping|U:01"));
+    }
+
+    /**
+     * Runs the acquire on all threads at once.
+     *
+     * @return How many of them acquired the cooldown
+     */
+    private static int race(LongSupplier acquire) throws Exception
+    {
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        AtomicInteger wins = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < THREADS; i++)
+        {
+            threads.add(new Thread(() -> {
+                try
+                {
+                    barrier.await();
+                }
+                catch(Exception e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                if(acquire.getAsLong() == 0)
+                    wins.incrementAndGet();
+            }));
+        }
+        threads.forEach(Thread::start);
+        for(Thread thread : threads)
+            thread.join();
+        return wins.get();
+    }
+}
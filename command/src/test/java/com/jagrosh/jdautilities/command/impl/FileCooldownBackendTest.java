@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileCooldownBackendTest
+{
+    private static final int ROUNDS = 50;
+
+    private Path file;
+    private FileCooldownBackend first;
+    private FileCooldownBackend second;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        file = Files.createTempFile("cooldowns", ".bin");
+        first = new FileCooldownBackend(file);
+        second = new FileCooldownBackend(file);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        first.shutdown();
+        second.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testOnlyOneBackendAcquiresSharedKey()
+    {
+        long now = System.currentTimeMillis();
+        for(int round = 0; round < ROUNDS; round++)
+        {
+            String[] keys = {"ping|U:" + round};
+            CompletableFuture<long[]> one = first.acquire(keys, new long[]{now + 60_000}, now);
+            CompletableFuture<long[]> two = second.acquire(keys, new long[]{now + 30_000}, now);
+            long a = one.join()[0];
+            long b = two.join()[0];
+
+            // The loser sees the winner's expiration
+            assertTrue(a == 0 ^ b == 0);
+            assertEquals(a == 0 ? now + 60_000 : now + 30_000, a + b);
+        }
+    }
+
+    @Test
+    public void testReleaseIsSeenByOtherBackend()
+    {
+        long now = System.currentTimeMillis();
+        String[] keys = {"ping|U:1"};
+        assertArrayEquals(new long[]{0}, first.acquire(keys, new long[]{now + 60_000}, now).join());
+        assertArrayEquals(new long[]{now + 60_000}, second.fetch(keys, now).join());
+
+        second.release(keys).join();
+        assertArrayEquals(new long[]{0}, first.fetch(keys, now).join());
+        assertArrayEquals(new long[]{0}, first.acquire(keys, new long[]{now + 30_000}, now).join());
+    }
+
+    @Test
+    public void testExpiredCooldownCanBeAcquired()
+    {
+        long now = System.currentTimeMillis();
+        String[] keys = {"ping|U:1"};
+        assertArrayEquals(new long[]{0}, first.acquire(keys, new long[]{now + 1_000}, now).join());
+        assertArrayEquals(new long[]{0}, second.acquire(keys, new long[]{now + 61_000}, now + 1_000).join());
+        assertArrayEquals(new long[]{now + 61_000}, first.fetch(keys, now + 1_000).join());
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class InMemoryCooldownBackendTest
+{
+    private final InMemoryCooldownBackend backend = new InMemoryCooldownBackend();
+
+    @Test
+    public void testOnlyFirstOccurrenceInBatchAcquires()
+    {
+        long now = System.currentTimeMillis();
+        long[] results = backend.acquire(new String[]{"a", "b", "a"}, new long[]{now + 60_000, now + 60_000, now + 30_000}, now).join();
+        assertArrayEquals(new long[]{0, 0, now + 60_000}, results);
+    }
+
+    @Test
+    public void testReleaseThenAcquire()
+    {
+        long now = System.currentTimeMillis();
+        String[] keys = {"a"};
+        assertArrayEquals(new long[]{0}, backend.acquire(keys, new long[]{now + 60_000}, now).join());
+        assertArrayEquals(new long[]{now + 60_000}, backend.acquire(keys, new long[]{now + 30_000}, now).join());
+
+        backend.release(keys).join();
+        assertArrayEquals(new long[]{0}, backend.fetch(keys, now).join());
+        assertArrayEquals(new long[]{0}, backend.acquire(keys, new long[]{now + 30_000}, now).join());
+        assertArrayEquals(new long[]{now + 30_000}, backend.fetch(keys, now).join());
+    }
+
+    @Test
+    public void testExpiredCooldownCanBeAcquired()
+    {
+        long now = System.currentTimeMillis();
+        String[] keys = {"a"};
+        assertArrayEquals(new long[]{0}, backend.acquire(keys, new long[]{now + 1_000}, now).join());
+        assertArrayEquals(new long[]{0}, backend.fetch(keys, now + 1_000).join());
+        assertArrayEquals(new long[]{0}, backend.acquire(keys, new long[]{now + 61_000}, now + 1_000).join());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CooldownScope;
+import com.jagrosh.jdautilities.command.RateLimit;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedRateLimitTest
+{
+    @Test
+    public void testTokenBucketRefund()
+    {
+        assertRefundable(new TokenBucketRateLimit(2, 60_000, CooldownScope.USER));
+    }
+
+    @Test
+    public void testSlidingWindowRefund()
+    {
+        assertRefundable(new SlidingWindowRateLimit(2, 60_000, CooldownScope.USER));
+    }
+
+    @Test
+    public void testSlidingWindowRefundAfterRoll()
+    {
+        RateLimit limit = new SlidingWindowRateLimit(2, 60_000, CooldownScope.USER);
+        long now = 120_000;
+        assertEquals(0, limit.tryAcquire("a", now));
+        assertEquals(0, limit.tryAcquire("a", now));
+
+        // The refund lands in the previous window once another use has rolled the counter
+        assertTrue(limit.tryAcquire("a", now + 60_000) > 0);
+        limit.refund("a", now);
+        assertEquals(0, limit.tryAcquire("a", now + 60_000));
+    }
+
+    @Test
+    public void testEvictIdleKeepsLimitedKeys()
+    {
+        RateLimit limit = new TokenBucketRateLimit(2, 60_000, CooldownScope.USER);
+        long now = 120_000;
+        assertEquals(0, limit.tryAcquire("a", now));
+        assertEquals(0, limit.tryAcquire("a", now));
+        assertEquals(0, limit.tryAcquire("b", now));
+
+        // Neither bucket has refilled yet, so evicting them would let extra uses through
+        limit.evictIdle(now);
+        assertTrue(limit.tryAcquire("a", now) > 0);
+        assertEquals(0, limit.tryAcquire("b", now));
+        assertTrue(limit.tryAcquire("b", now) > 0);
+
+        // Once refilled they are evicted, and start over from a full bucket
+        limit.evictIdle(now + 60_000);
+        assertEquals(0, limit.tryAcquire("a", now + 60_000));
+        assertEquals(0, limit.tryAcquire("a", now + 60_000));
+        assertTrue(limit.tryAcquire("a", now + 60_000) > 0);
+    }
+
+    @Test
+    public void testConcurrentEvictionCountsEveryUse() throws InterruptedException
+    {
+        int limit = 1000;
+        RateLimit rateLimit = new SlidingWindowRateLimit(limit, 60_000, CooldownScope.USER);
+        long now = 120_000;
+        AtomicInteger allowed = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++)
+        {
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < limit; i++)
+                {
+                    if(rateLimit.tryAcquire("a", now) == 0)
+                        allowed.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        // The key is only idle before its first use, so no use may be lost to an eviction
+        for(Thread thread : threads)
+        {
+            while(thread.isAlive())
+                rateLimit.evictIdle(now);
+        }
+        for(Thread thread : threads)
+            thread.join();
+        assertEquals(limit, allowed.get());
+    }
+
+    private static void assertRefundable(RateLimit limit)
+    {
+        long now = 120_000;
+        assertEquals(0, limit.tryAcquire("a", now));
+        assertEquals(0, limit.tryAcquire("a", now));
+        assertTrue(limit.tryAcquire("a", now) > 0);
+
+        limit.refund("a", now);
+        assertEquals(0, limit.tryAcquire("a", now));
+        assertTrue(limit.tryAcquire("a", now) > 0);
+
+        // Refunding a key that was never counted does nothing
+        limit.refund("b", now);
+        assertEquals(0, limit.tryAcquire("b", now));
+    }
+}
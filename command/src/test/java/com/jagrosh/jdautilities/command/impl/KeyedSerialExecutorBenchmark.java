@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of a {@link KeyedSerialExecutor} when tasks are spread over many keys
+ * with the throughput when they all share one hot key, against the backing executor on its own.
+ *
+ * <p>This isn't run with the tests, run its main method to get the numbers.
+ */
+public class KeyedSerialExecutorBenchmark
+{
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int TASKS = 200_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try
+        {
+            report("executor only", pool, -1);
+            report("many keys", pool, 10_000);
+            report("one hot key", pool, 1);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    private static void report(String name, ExecutorService pool, int keys) throws InterruptedException
+    {
+        for(int i = 0; i < WARMUP_ROUNDS; i++)
+            run(pool, keys);
+        long best = Long.MAX_VALUE;
+        for(int i = 0; i < ROUNDS; i++)
+            best = Math.min(best, run(pool, keys));
+        System.out.printf("%-14s %,12d tasks/s%n", name, TASKS * TimeUnit.SECONDS.toNanos(1) / best);
+    }
+
+    private static long run(ExecutorService pool, int keys) throws InterruptedException
+    {
+        KeyedSerialExecutor lanes = new KeyedSerialExecutor(pool);
+        CountDownLatch done = new CountDownLatch(TASKS);
+        Runnable task = () -> {
+            work();
+            done.countDown();
+        };
+        long start = System.nanoTime();
+        for(int i = 0; i < TASKS; i++)
+        {
+            if(keys < 0)
+                pool.execute(task);
+            else
+                lanes.execute(i % keys, task, () -> {});
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    // A little work per task, like a short command
+    private static void work()
+    {
+        long x = System.nanoTime();
+        for(int i = 0; i < 200; i++)
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        sink = x;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedSerialExecutorTest
+{
+    private static final Runnable NOTHING = () -> {};
+
+    @Test
+    public void testTasksWithSameKeyRunInOrder() throws InterruptedException
+    {
+        int keys = 50, tasksPerKey = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        KeyedSerialExecutor lanes = new KeyedSerialExecutor(pool);
+        List<List<Integer>> runs = new ArrayList<>();
+        for(int key = 0; key < keys; key++)
+            runs.add(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(keys * tasksPerKey);
+
+        for(int i = 0; i < tasksPerKey; i++)
+        {
+            for(int key = 0; key < keys; key++)
+            {
+                // Lists aren't thread-safe, so this also fails if two tasks of a key overlap
+                List<Integer> run = runs.get(key);
+                int index = i;
+                lanes.execute(key, () -> {
+                    run.add(index);
+                    done.countDown();
+                }, NOTHING);
+            }
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        for(List<Integer> run : runs)
+        {
+            assertEquals(tasksPerKey, run.size());
+            for(int i = 0; i < tasksPerKey; i++)
+                assertEquals(i, (int) run.get(i));
+        }
+        assertEquals(0, lanes.getActiveLanes());
+    }
+
+    @Test
+    public void testRejectedLaneRejectsQueuedTasks() throws InterruptedException
+    {
+        CountDownLatch submitted = new CountDownLatch(1);
+        CountDownLatch queued = new CountDownLatch(1);
+        KeyedSerialExecutor lanes = new KeyedSerialExecutor(task -> {
+            // Reject the start of the lane only once another task was queued behind it
+            submitted.countDown();
+            try
+            {
+                queued.await();
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            throw new RejectedExecutionException();
+        });
+        AtomicInteger ran = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicBoolean firstRejected = new AtomicBoolean();
+
+        Thread first = new Thread(() -> {
+            try
+            {
+                lanes.execute(1, ran::incrementAndGet, rejected::incrementAndGet);
+            }
+            catch(RejectedExecutionException e)
+            {
+                firstRejected.set(true);
+            }
+        });
+        first.start();
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        lanes.execute(1, ran::incrementAndGet, rejected::incrementAndGet);
+        queued.countDown();
+        first.join();
+
+        // Neither task may run on the submitting thread
+        assertTrue(firstRejected.get());
+        assertEquals(0, ran.get());
+        assertEquals(1, rejected.get());
+        assertEquals(0, lanes.getActiveLanes());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.CommandClientBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+
+/**
+ * Measures how much the {@link CommandClientImpl CommandClientImpl} allocates, and how long it takes,
+ * to parse messages that aren't commands, with a command message for comparison.
+ *
+ * <p>The messages are stubbed with proxies that only answer what parsing a message needs,
+ * so everything allocated is allocated by the client. This isn't run with the tests,
+ * run its main method to get the numbers.
+ */
+public class MessageParsingBenchmark
+{
+    private static final int MESSAGES = 1_000_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile int sink;
+
+    public static void main(String[] args)
+    {
+        CommandClientImpl client = (CommandClientImpl) new CommandClientBuilder()
+            .setOwnerId("1")
+            .setPrefix("!")
+            .setAlternativePrefix("bot ")
+            .build();
+        try
+        {
+            report("guild message", client, message("just chatting about things", ChannelType.TEXT));
+            report("direct message", client, message("just chatting about things", ChannelType.PRIVATE));
+            report("command", client, message("!ping with some arguments", ChannelType.TEXT));
+        }
+        finally
+        {
+            client.shutdown();
+        }
+    }
+
+    private static void report(String name, CommandClientImpl client, MessageReceivedEvent event)
+    {
+        for(int i = 0; i < WARMUP_ROUNDS; i++)
+            run(client, event);
+        long best = Long.MAX_VALUE;
+        long bytes = 0;
+        long threadId = Thread.currentThread().getId();
+        for(int i = 0; i < ROUNDS; i++)
+        {
+            long allocated = THREADS.getThreadAllocatedBytes(threadId);
+            best = Math.min(best, run(client, event));
+            bytes = THREADS.getThreadAllocatedBytes(threadId) - allocated;
+        }
+        System.out.printf("%-15s %6.1f ns/message %8.2f bytes/message%n",
+            name, (double) best / MESSAGES, (double) bytes / MESSAGES);
+    }
+
+    private static long run(CommandClientImpl client, MessageReceivedEvent event)
+    {
+        int commands = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < MESSAGES; i++)
+        {
+            if(client.getParts(event) != null)
+                commands++;
+        }
+        long time = System.nanoTime() - start;
+        sink += commands;
+        return time;
+    }
+
+    private static MessageReceivedEvent message(String content, ChannelType type)
+    {
+        MessageChannelUnion channel = stub(MessageChannelUnion.class, "getType", type);
+        Message message = stub(Message.class, "getContentRaw", content, "getChannel", channel, "getIdLong", 1L);
+        return new MessageReceivedEvent(null, 0, message);
+    }
+
+    // Answers the named methods with the values following them, and fails on any other method
+    private static <T> T stub(Class<T> type, Object... answers)
+    {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            for(int i = 0; i < answers.length; i += 2)
+            {
+                if(answers[i].equals(method.getName()))
+                    return answers[i + 1];
+            }
+            throw new UnsupportedOperationException(method.toString());
+        }));
+    }
+}
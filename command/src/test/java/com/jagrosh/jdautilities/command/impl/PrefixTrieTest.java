@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class PrefixTrieTest
+{
+    @Test
+    public void testLongestPrefixIgnoringCase()
+    {
+        PrefixTrie trie = new PrefixTrie(Arrays.asList("!", "!!", "Bot "));
+        assertEquals(2, trie.match("!!help"));
+        assertEquals(1, trie.match("!help"));
+        assertEquals(4, trie.match("bOT help"));
+        assertEquals(-1, trie.match("help"));
+    }
+}
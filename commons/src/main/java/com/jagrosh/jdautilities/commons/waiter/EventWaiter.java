@@ -24,14 +24,28 @@ import net.dv8tion.jda.internal.utils.Checks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 /**
  * <p>The EventWaiter is capable of handling specialized forms of
@@ -46,25 +60,54 @@ import java.util.function.Predicate;
  * <br>A more "shutdown adaptable" constructor allows the provision of a
  * {@code ScheduledExecutorService} and a choice of how exactly shutdown will be handled
  * (see {@link EventWaiter#EventWaiter(ScheduledExecutorService, boolean)} for more details).
+ * <br>Alternatively, the timeouts of WaitingEvents can be handled by any other {@link TimeoutScheduler TimeoutScheduler},
+ * such as a {@link HashedWheelTimeoutScheduler HashedWheelTimeoutScheduler} for bots that keep large amounts
+ * of WaitingEvents around (see {@link EventWaiter#EventWaiter(TimeoutScheduler, boolean)}).
  * 
  * <p>As a final note, if you intend to use the EventWaiter, it is highly recommended you <b>DO NOT</b>
  * create multiple EventWaiters! Doing this will cause unnecessary increases in memory usage.
+ *
+ * <p>The EventWaiter is safe to use across threads: WaitingEvents may be registered from any thread
+ * while events are being dispatched from any number of shards, and each WaitingEvent will either
+ * run its action or its timeout action exactly once.
+ *
+ * <p>Besides the callback based {@code waitForEvent} methods, WaitingEvents can also be registered
+ * with {@code waitForEventAsync}, which returns a {@link java.util.concurrent.CompletableFuture CompletableFuture}
+ * that can be chained, composed, or cancelled.
+ *
+ * <p>Further settings, such as running actions on a separate {@link java.util.concurrent.Executor Executor}
+ * instead of the thread an Event was fired on, are available by creating the EventWaiter with an
+ * {@link EventWaiterBuilder EventWaiterBuilder}.
  * 
  * @author John Grosh (jagrosh)
  */
 public class EventWaiter implements EventListener
 {
     private static final Logger LOG = LoggerFactory.getLogger(EventWaiter.class);
-    private final HashMap<Class<?>, Set<WaitingEvent>> waitingEvents;
-    private final ScheduledExecutorService threadpool;
+    private static final WaiterBucket[] NO_BUCKETS = new WaiterBucket[0];
+    private static final int ACQUIRED = 0, REJECTED = 1, RETIRED = 2;
+    private final ConcurrentHashMap<Class<?>, WaiterBucket> waitingEvents;
+    private final ConcurrentHashMap<Class<?>, DispatchPlan> dispatchPlans;
+    private final AtomicInteger bucketGeneration;
+    private final TimeoutScheduler scheduler;
     private final boolean shutdownAutomatically;
+    private final Executor actionExecutor;
+    private final EventWaiterMetrics metrics;
+    private final boolean instrumented;
+    private final int maxWaiters;
+    private final int maxWaitersPerKey;
+    private final Map<ToLongFunction<?>, Integer> keyLimits;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong sequence;
+    private final WaiterGroup allWaiters;
+    private final ConcurrentHashMap<ToLongFunction<?>, ConcurrentHashMap<Long, WaiterGroup>> waitersByKey;
     
     /**
      * Constructs an empty EventWaiter.
      */
     public EventWaiter()
     {
-        this(Executors.newSingleThreadScheduledExecutor(), true);
+        this(newDefaultThreadpool(), true);
     }
 
     /**
@@ -105,11 +148,45 @@ public class EventWaiter implements EventListener
      */
     public EventWaiter(ScheduledExecutorService threadpool, boolean shutdownAutomatically)
     {
-        Checks.notNull(threadpool, "ScheduledExecutorService");
-        Checks.check(!threadpool.isShutdown(), "Cannot construct EventWaiter with a closed ScheduledExecutorService!");
+        this(new ExecutorTimeoutScheduler(checkThreadpool(threadpool)), shutdownAutomatically);
+    }
+
+    /**
+     * Constructs an EventWaiter using the provided {@link TimeoutScheduler TimeoutScheduler}
+     * to handle the timeouts of its WaitingEvents.
+     *
+     * <p>This works the same way as {@link #EventWaiter(ScheduledExecutorService, boolean)},
+     * {@code shutdownAutomatically} determining whether the {@code scheduler} will be shut down when a
+     * {@link net.dv8tion.jda.api.events.session.ShutdownEvent ShutdownEvent} is fired, or if it is the
+     * responsibility of the developer.
+     *
+     * @param  scheduler
+     *         The TimeoutScheduler to use for the timeouts of this EventWaiter.
+     * @param  shutdownAutomatically
+     *         Whether or not the {@code scheduler} will shutdown automatically when a
+     *         {@link net.dv8tion.jda.api.events.session.ShutdownEvent ShutdownEvent} is fired.
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the scheduler provided is {@code null} or
+     *         {@link TimeoutScheduler#isShutdown() is shutdown}
+     *
+     * @see    HashedWheelTimeoutScheduler
+     */
+    public EventWaiter(TimeoutScheduler scheduler, boolean shutdownAutomatically)
+    {
+        this(scheduler, shutdownAutomatically, null, EventWaiterMetrics.NONE, 0, 0, Collections.emptyMap(), OverflowPolicy.REJECT);
+    }
+
+    EventWaiter(TimeoutScheduler scheduler, boolean shutdownAutomatically, Executor actionExecutor, EventWaiterMetrics metrics,
+                int maxWaiters, int maxWaitersPerKey, Map<ToLongFunction<?>, Integer> keyLimits, OverflowPolicy overflowPolicy)
+    {
+        Checks.notNull(scheduler, "TimeoutScheduler");
+        Checks.check(!scheduler.isShutdown(), "Cannot construct EventWaiter with a closed TimeoutScheduler!");
 
-        this.waitingEvents = new HashMap<>();
-        this.threadpool = threadpool;
+        this.waitingEvents = new ConcurrentHashMap<>();
+        this.dispatchPlans = new ConcurrentHashMap<>();
+        this.bucketGeneration = new AtomicInteger();
+        this.scheduler = scheduler;
 
         // "Why is there no default constructor?"
         //
@@ -123,17 +200,103 @@ public class EventWaiter implements EventListener
         //
         // NOT MINE
         this.shutdownAutomatically = shutdownAutomatically;
+        this.actionExecutor = actionExecutor;
+        this.metrics = metrics;
+        // Skip all timing when nobody is listening, so the default EventWaiter pays nothing for it
+        this.instrumented = metrics != EventWaiterMetrics.NONE;
+        this.maxWaiters = maxWaiters;
+        this.maxWaitersPerKey = maxWaitersPerKey;
+        this.keyLimits = keyLimits;
+        this.overflowPolicy = overflowPolicy;
+        this.sequence = new AtomicLong();
+        // Waiters only need to be ordered by age if we may have to evict the oldest one
+        this.allWaiters = new WaiterGroup(maxWaiters > 0);
+        this.waitersByKey = new ConcurrentHashMap<>();
     }
 
     /**
-     * Gets whether the EventWaiter's internal ScheduledExecutorService
+     * Gets whether the EventWaiter's internal ScheduledExecutorService (or TimeoutScheduler)
      * {@link java.util.concurrent.ScheduledExecutorService#isShutdown() is shutdown}.
      *
      * @return {@code true} if the ScheduledExecutorService is shutdown, {@code false} otherwise.
      */
     public boolean isShutdown()
     {
-        return threadpool.isShutdown();
+        return scheduler.isShutdown();
+    }
+
+    /**
+     * Gets the amount of WaitingEvents currently registered to this EventWaiter.
+     *
+     * @return The amount of WaitingEvents registered.
+     *
+     * @see    EventWaiterBuilder#setMaxWaiters(int)
+     */
+    public int getWaiterCount()
+    {
+        return allWaiters.count.get();
+    }
+
+    /**
+     * Gets the amount of WaitingEvents currently registered to this EventWaiter for each type of Event.
+     *
+     * <p>This is computed when called and is meant to be polled, for example to back a gauge
+     * of the {@link EventWaiterMetrics EventWaiterMetrics} this EventWaiter reports to.
+     * Types of Event that had WaitingEvents registered for them at some point are included even if
+     * none are left.
+     *
+     * @return An unmodifiable Map of each type of Event to the amount of WaitingEvents registered for it.
+     */
+    public Map<Class<?>, Integer> getWaiterCounts()
+    {
+        Map<Class<?>, Integer> counts = new HashMap<>();
+        waitingEvents.forEach((type, bucket) -> counts.put(type, bucket.size()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Gets the amount of WaitingEvents currently registered to this EventWaiter with the provided key,
+     * by any key extractor.
+     *
+     * @param  key
+     *         The key the WaitingEvents were registered with.
+     *
+     * @return The amount of WaitingEvents registered with the key.
+     *
+     * @see    #getWaiterCount(ToLongFunction, long)
+     */
+    public int getWaiterCount(long key)
+    {
+        int count = 0;
+        for(ConcurrentHashMap<Long, WaiterGroup> groups : waitersByKey.values())
+            count += getWaiterCount(groups, key);
+        return count;
+    }
+
+    /**
+     * Gets the amount of WaitingEvents currently registered to this EventWaiter with the provided
+     * key extractor and key.
+     *
+     * <p>This is the count the {@link EventWaiterBuilder#setMaxWaitersPerKey(ToLongFunction, int) per-key limit}
+     * of the key extractor applies to, which is kept whether or not it has a limit.
+     *
+     * @param  keyExtractor
+     *         The key extractor the WaitingEvents were registered with.
+     * @param  key
+     *         The key the WaitingEvents were registered with.
+     *
+     * @return The amount of WaitingEvents registered with the key extractor and key.
+     */
+    public int getWaiterCount(ToLongFunction<?> keyExtractor, long key)
+    {
+        ConcurrentHashMap<Long, WaiterGroup> groups = waitersByKey.get(keyExtractor);
+        return groups == null ? 0 : getWaiterCount(groups, key);
+    }
+
+    private static int getWaiterCount(ConcurrentHashMap<Long, WaiterGroup> groups, long key)
+    {
+        WaiterGroup group = groups.get(key);
+        return group == null ? 0 : Math.max(group.count.get(), 0);
     }
 
     /**
@@ -208,92 +371,1231 @@ public class EventWaiter implements EventListener
         Checks.notNull(condition, "The provided condition predicate");
         Checks.notNull(action, "The provided action consumer");
 
-        WaitingEvent we = new WaitingEvent<>(condition, action);
-        Set<WaitingEvent> set = waitingEvents.computeIfAbsent(classType, c -> ConcurrentHashMap.newKeySet());
-        set.add(we);
+        whenCompleted(classType, register(classType, null, 0, condition, timeout, unit), action, timeoutAction);
+    }
 
-        if(timeout > 0 && unit != null)
-        {
-            threadpool.schedule(() ->
-            {
-                try
-                {
-                    if(set.remove(we) && timeoutAction != null)
-                        timeoutAction.run();
-                }
-                catch (Exception ex)
-                {
-                    LOG.error("Failed to run timeoutAction", ex);
-                }
-            }, timeout, unit);
-        }
+    /**
+     * Waits an indefinite amount of time for an {@link net.dv8tion.jda.api.events.Event Event} with
+     * the provided key that returns {@code true} when tested with the provided
+     * {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>This works the same way as {@link #waitForEvent(Class, Predicate, Consumer)}, but
+     * the WaitingEvent is indexed by the provided key, and the condition will only ever be
+     * tested against Events for which the {@code keyExtractor} returns that same key.
+     * <br>This is useful when waiting on Events tied to a specific snowflake, such as a message,
+     * channel, or user ID, as the EventWaiter doesn't need to test every WaitingEvent of that
+     * type whenever such an Event is fired.
+     *
+     * <p>WaitingEvents are grouped by the identity of their {@code keyExtractor}, so the same
+     * instance should be reused across registrations (for example, by storing it in a
+     * {@code static final} field).
+     *
+     * @param  <T>
+     *         The type of Event to wait for.
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for. Never null.
+     * @param  keyExtractor
+     *         The function used to get the key of a fired Event. Never null.
+     * @param  key
+     *         The key the Event must have for the condition to be tested.
+     * @param  condition
+     *         The Predicate to test when Events of the provided type and key are thrown. Never null.
+     * @param  action
+     *         The Consumer to perform an action when the condition Predicate returns {@code true}. Never null.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classType}, {@code keyExtractor}, {@code condition}, or {@code action} was {@code null}.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     */
+    public <T extends Event> void waitForEvent(Class<T> classType, ToLongFunction<? super T> keyExtractor, long key,
+                                               Predicate<T> condition, Consumer<T> action)
+    {
+        waitForEvent(classType, keyExtractor, key, condition, action, -1, null, null);
     }
-    
-    @Override
-    @SubscribeEvent
-    @SuppressWarnings("unchecked")
-    public final void onEvent(GenericEvent event)
+
+    /**
+     * Waits a predetermined amount of time for an {@link net.dv8tion.jda.api.events.Event Event} with
+     * the provided key that returns {@code true} when tested with the provided
+     * {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>This works the same way as {@link #waitForEvent(Class, Predicate, Consumer, long, TimeUnit, Runnable)},
+     * but the WaitingEvent is indexed by the provided key, and the condition will only ever be
+     * tested against Events for which the {@code keyExtractor} returns that same key.
+     * <br>See {@link #waitForEvent(Class, ToLongFunction, long, Predicate, Consumer)} for more details.
+     *
+     * @param  <T>
+     *         The type of Event to wait for.
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for. Never null.
+     * @param  keyExtractor
+     *         The function used to get the key of a fired Event. Never null.
+     * @param  key
+     *         The key the Event must have for the condition to be tested.
+     * @param  condition
+     *         The Predicate to test when Events of the provided type and key are thrown. Never null.
+     * @param  action
+     *         The Consumer to perform an action when the condition Predicate returns {@code true}. Never null.
+     * @param  timeout
+     *         The maximum amount of time to wait for, or {@code -1} if there is no timeout.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the timeout, or
+     *         {@code null} if there is no timeout.
+     * @param  timeoutAction
+     *         The Runnable to run if the time runs out before a correct Event is thrown, or
+     *         {@code null} if there is no action on timeout.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classType}, {@code keyExtractor}, {@code condition}, or {@code action} was {@code null}.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     */
+    public <T extends Event> void waitForEvent(Class<T> classType, ToLongFunction<? super T> keyExtractor, long key,
+                                               Predicate<T> condition, Consumer<T> action,
+                                               long timeout, TimeUnit unit, Runnable timeoutAction)
     {
-        Class c = event.getClass();
+        Checks.check(!isShutdown(), "Attempted to register a WaitingEvent while the EventWaiter's threadpool was already shut down!");
+        Checks.notNull(classType, "The provided class type");
+        Checks.notNull(keyExtractor, "The provided key extractor");
+        Checks.notNull(condition, "The provided condition predicate");
+        Checks.notNull(action, "The provided action consumer");
 
-        // Runs at least once for the fired Event, at most
-        // once for each superclass (excluding Object) because
-        // Class#getSuperclass() returns null when the superclass
-        // is primitive, void, or (in this case) Object.
-        while(c != null)
-        {
-            final Set<WaitingEvent> set = waitingEvents.get(c);
-            if(set != null)
-            {
-                // WaitingEvent#attempt invocations that return true have passed their condition tests
-                // and executed the action. We remove the ones that have successfully ran (those that returns true)
-                set.removeIf(wEvent -> wEvent.attempt(event));
-            }
-            if(event instanceof ShutdownEvent && shutdownAutomatically)
-            {
-                threadpool.shutdown();
-            }
-            c = c.getSuperclass();
-        }
+        whenCompleted(classType, register(classType, keyExtractor, key, condition, timeout, unit), action, timeoutAction);
     }
 
     /**
-     * Closes this EventWaiter if it doesn't normally shutdown automatically.
+     * Waits an indefinite amount of time for an {@link net.dv8tion.jda.api.events.Event Event} that
+     * returns {@code true} when tested with the provided {@link java.util.function.Predicate Predicate}.
      *
-     * <p><b>IF YOU USED THE DEFAULT CONSTRUCTOR WITH NO ARGUMENTS DO NOT CALL THIS!</b>
-     * <br>Calling this method on an EventWaiter that does shutdown automatically will result in
-     * an {@link java.lang.UnsupportedOperationException UnsupportedOperationException} being thrown.
+     * <p>The returned {@link java.util.concurrent.CompletableFuture CompletableFuture} is completed with
+     * the first such Event. Cancelling it removes the WaitingEvent from this EventWaiter right away.
+     * <br>Note that non-async dependent stages of the CompletableFuture run on the thread that
+     * completes it, which is the thread the Event was fired on.
      *
-     * @throws UnsupportedOperationException
-     *         The EventWaiter is supposed to close automatically.
+     * @param  <T>
+     *         The type of Event to wait for.
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for. Never null.
+     * @param  condition
+     *         The Predicate to test when Events of the provided type are thrown. Never null.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classType} or {@code condition} was {@code null}.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     *
+     * @return A CompletableFuture that completes with the Event.
      */
-    public void shutdown()
+    public <T extends Event> CompletableFuture<T> waitForEventAsync(Class<T> classType, Predicate<T> condition)
     {
-        if(shutdownAutomatically)
-            throw new UnsupportedOperationException("Shutting down EventWaiters that are set to automatically close is unsupported!");
+        return waitForEventAsync(classType, condition, -1, null);
+    }
+
+    /**
+     * Waits a predetermined amount of time for an {@link net.dv8tion.jda.api.events.Event Event} that
+     * returns {@code true} when tested with the provided {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>The returned {@link java.util.concurrent.CompletableFuture CompletableFuture} is completed with
+     * the first such Event, or exceptionally with a {@link java.util.concurrent.TimeoutException TimeoutException}
+     * if the time limit elapses first. Cancelling it removes the WaitingEvent from this EventWaiter and cancels
+     * its timeout right away.
+     * <br>Note that non-async dependent stages of the CompletableFuture run on the thread that
+     * completes it, which is either the thread the Event was fired on, or the thread of the
+     * {@link TimeoutScheduler TimeoutScheduler}.
+     *
+     * @param  <T>
+     *         The type of Event to wait for.
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for. Never null.
+     * @param  condition
+     *         The Predicate to test when Events of the provided type are thrown. Never null.
+     * @param  timeout
+     *         The maximum amount of time to wait for, or {@code -1} if there is no timeout.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the timeout, or
+     *         {@code null} if there is no timeout.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classType} or {@code condition} was {@code null}.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     *
+     * @return A CompletableFuture that completes with the Event.
+     */
+    public <T extends Event> CompletableFuture<T> waitForEventAsync(Class<T> classType, Predicate<T> condition,
+                                                                    long timeout, TimeUnit unit)
+    {
+        Checks.check(!isShutdown(), "Attempted to register a WaitingEvent while the EventWaiter's threadpool was already shut down!");
+        Checks.notNull(classType, "The provided class type");
+        Checks.notNull(condition, "The provided condition predicate");
 
-        threadpool.shutdown();
+        return register(classType, null, 0, condition, timeout, unit);
     }
-    
-    private class WaitingEvent<T extends GenericEvent>
+
+    /**
+     * Waits an indefinite amount of time for an {@link net.dv8tion.jda.api.events.Event Event} with
+     * the provided key that returns {@code true} when tested with the provided
+     * {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>This works the same way as {@link #waitForEventAsync(Class, Predicate)}, with the
+     * WaitingEvent being indexed by key as described in {@link #waitForEvent(Class, ToLongFunction, long, Predicate, Consumer)}.
+     *
+     * @param  <T>
+     *         The type of Event to wait for.
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for. Never null.
+     * @param  keyExtractor
+     *         The function used to get the key of a fired Event. Never null.
+     * @param  key
+     *         The key the Event must have for the condition to be tested.
+     * @param  condition
+     *         The Predicate to test when Events of the provided type and key are thrown. Never null.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classType}, {@code keyExtractor}, or {@code condition} was {@code null}.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     *
+     * @return A CompletableFuture that completes with the Event.
+     */
+    public <T extends Event> CompletableFuture<T> waitForEventAsync(Class<T> classType, ToLongFunction<? super T> keyExtractor,
+                                                                    long key, Predicate<T> condition)
     {
-        final Predicate<T> condition;
-        final Consumer<T> action;
-        
-        WaitingEvent(Predicate<T> condition, Consumer<T> action)
-        {
-            this.condition = condition;
-            this.action = action;
-        }
-        
-        boolean attempt(T event)
-        {
-            if(condition.test(event))
-            {
-                action.accept(event);
-                return true;
-            }
-            return false;
-        }
+        return waitForEventAsync(classType, keyExtractor, key, condition, -1, null);
+    }
+
+    /**
+     * Waits a predetermined amount of time for an {@link net.dv8tion.jda.api.events.Event Event} with
+     * the provided key that returns {@code true} when tested with the provided
+     * {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>This works the same way as {@link #waitForEventAsync(Class, Predicate, long, TimeUnit)}, with the
+     * WaitingEvent being indexed by key as described in {@link #waitForEvent(Class, ToLongFunction, long, Predicate, Consumer)}.
+     *
+     * @param  <T>
+     *         The type of Event to wait for.
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for. Never null.
+     * @param  keyExtractor
+     *         The function used to get the key of a fired Event. Never null.
+     * @param  key
+     *         The key the Event must have for the condition to be tested.
+     * @param  condition
+     *         The Predicate to test when Events of the provided type and key are thrown. Never null.
+     * @param  timeout
+     *         The maximum amount of time to wait for, or {@code -1} if there is no timeout.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the timeout, or
+     *         {@code null} if there is no timeout.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classType}, {@code keyExtractor}, or {@code condition} was {@code null}.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     *
+     * @return A CompletableFuture that completes with the Event.
+     */
+    public <T extends Event> CompletableFuture<T> waitForEventAsync(Class<T> classType, ToLongFunction<? super T> keyExtractor,
+                                                                    long key, Predicate<T> condition,
+                                                                    long timeout, TimeUnit unit)
+    {
+        Checks.check(!isShutdown(), "Attempted to register a WaitingEvent while the EventWaiter's threadpool was already shut down!");
+        Checks.notNull(classType, "The provided class type");
+        Checks.notNull(keyExtractor, "The provided key extractor");
+        Checks.notNull(condition, "The provided condition predicate");
+
+        return register(classType, keyExtractor, key, condition, timeout, unit);
+    }
+
+    /**
+     * Waits a predetermined amount of time for an {@link net.dv8tion.jda.api.events.Event Event} of any
+     * of the provided types that returns {@code true} when tested with the provided
+     * {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>This works the same way as {@link #waitForEvent(Class, Predicate, Consumer, long, TimeUnit, Runnable)},
+     * but a single WaitingEvent is registered for all of the provided types, sharing one condition, action and timeout.
+     * <br>This is useful when an Event from one of several unrelated types could complete the WaitingEvent,
+     * as waiting on a common superclass instead would test the condition against every other type
+     * of Event extending it as well.
+     *
+     * <p>If a WaitingEvent is registered for several types of Event, the first of them is the one
+     * reported to the {@link EventWaiterMetrics EventWaiterMetrics} when it times out or its action is run.
+     *
+     * @param  <T>
+     *         The common supertype of the Events to wait for.
+     * @param  classTypes
+     *         The {@link java.lang.Class Classes} of the Events to wait for. Never null or empty.
+     * @param  condition
+     *         The Predicate to test when Events of the provided types are thrown. Never null.
+     * @param  action
+     *         The Consumer to perform an action when the condition Predicate returns {@code true}. Never null.
+     * @param  timeout
+     *         The maximum amount of time to wait for, or {@code -1} if there is no timeout.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the timeout, or
+     *         {@code null} if there is no timeout.
+     * @param  timeoutAction
+     *         The Runnable to run if the time runs out before a correct Event is thrown, or
+     *         {@code null} if there is no action on timeout.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classTypes} (or one of them), {@code condition}, or {@code action} was
+     *             {@code null}, or {@code classTypes} was empty.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     */
+    public <T extends Event> void waitForEvent(Collection<Class<? extends T>> classTypes, Predicate<T> condition,
+                                               Consumer<T> action, long timeout, TimeUnit unit, Runnable timeoutAction)
+    {
+        Checks.check(!isShutdown(), "Attempted to register a WaitingEvent while the EventWaiter's threadpool was already shut down!");
+        checkClassTypes(classTypes);
+        Checks.notNull(condition, "The provided condition predicate");
+        Checks.notNull(action, "The provided action consumer");
+
+        whenCompleted(classTypes.iterator().next(), register(classTypes, null, 0, condition, timeout, unit), action, timeoutAction);
+    }
+
+    /**
+     * Waits a predetermined amount of time for an {@link net.dv8tion.jda.api.events.Event Event} of any
+     * of the provided types with the provided key that returns {@code true} when tested with the provided
+     * {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>This works the same way as {@link #waitForEvent(Collection, Predicate, Consumer, long, TimeUnit, Runnable)},
+     * with the WaitingEvent being indexed by key for each of the provided types as described in
+     * {@link #waitForEvent(Class, ToLongFunction, long, Predicate, Consumer)}.
+     *
+     * @param  <T>
+     *         The common supertype of the Events to wait for.
+     * @param  classTypes
+     *         The {@link java.lang.Class Classes} of the Events to wait for. Never null or empty.
+     * @param  keyExtractor
+     *         The function used to get the key of a fired Event. Never null.
+     * @param  key
+     *         The key the Event must have for the condition to be tested.
+     * @param  condition
+     *         The Predicate to test when Events of the provided types and key are thrown. Never null.
+     * @param  action
+     *         The Consumer to perform an action when the condition Predicate returns {@code true}. Never null.
+     * @param  timeout
+     *         The maximum amount of time to wait for, or {@code -1} if there is no timeout.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the timeout, or
+     *         {@code null} if there is no timeout.
+     * @param  timeoutAction
+     *         The Runnable to run if the time runs out before a correct Event is thrown, or
+     *         {@code null} if there is no action on timeout.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classTypes} (or one of them), {@code keyExtractor}, {@code condition}, or
+     *             {@code action} was {@code null}, or {@code classTypes} was empty.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     */
+    public <T extends Event> void waitForEvent(Collection<Class<? extends T>> classTypes, ToLongFunction<? super T> keyExtractor,
+                                               long key, Predicate<T> condition, Consumer<T> action,
+                                               long timeout, TimeUnit unit, Runnable timeoutAction)
+    {
+        Checks.check(!isShutdown(), "Attempted to register a WaitingEvent while the EventWaiter's threadpool was already shut down!");
+        checkClassTypes(classTypes);
+        Checks.notNull(keyExtractor, "The provided key extractor");
+        Checks.notNull(condition, "The provided condition predicate");
+        Checks.notNull(action, "The provided action consumer");
+
+        whenCompleted(classTypes.iterator().next(), register(classTypes, keyExtractor, key, condition, timeout, unit),
+            action, timeoutAction);
+    }
+
+    /**
+     * Waits a predetermined amount of time for an {@link net.dv8tion.jda.api.events.Event Event} of any
+     * of the provided types that returns {@code true} when tested with the provided
+     * {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>This works the same way as {@link #waitForEventAsync(Class, Predicate, long, TimeUnit)}, with a single
+     * WaitingEvent being registered for all of the provided types as described in
+     * {@link #waitForEvent(Collection, Predicate, Consumer, long, TimeUnit, Runnable)}.
+     *
+     * @param  <T>
+     *         The common supertype of the Events to wait for.
+     * @param  classTypes
+     *         The {@link java.lang.Class Classes} of the Events to wait for. Never null or empty.
+     * @param  condition
+     *         The Predicate to test when Events of the provided types are thrown. Never null.
+     * @param  timeout
+     *         The maximum amount of time to wait for, or {@code -1} if there is no timeout.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the timeout, or
+     *         {@code null} if there is no timeout.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classTypes} (or one of them) or {@code condition} was {@code null},
+     *             or {@code classTypes} was empty.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     *
+     * @return A CompletableFuture that completes with the Event.
+     */
+    public <T extends Event> CompletableFuture<T> waitForEventAsync(Collection<Class<? extends T>> classTypes,
+                                                                    Predicate<T> condition, long timeout, TimeUnit unit)
+    {
+        Checks.check(!isShutdown(), "Attempted to register a WaitingEvent while the EventWaiter's threadpool was already shut down!");
+        checkClassTypes(classTypes);
+        Checks.notNull(condition, "The provided condition predicate");
+
+        return register(classTypes, null, 0, condition, timeout, unit);
+    }
+
+    /**
+     * Waits a predetermined amount of time for an {@link net.dv8tion.jda.api.events.Event Event} of any
+     * of the provided types with the provided key that returns {@code true} when tested with the provided
+     * {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>This works the same way as {@link #waitForEventAsync(Collection, Predicate, long, TimeUnit)}, with the
+     * WaitingEvent being indexed by key for each of the provided types as described in
+     * {@link #waitForEvent(Class, ToLongFunction, long, Predicate, Consumer)}.
+     *
+     * @param  <T>
+     *         The common supertype of the Events to wait for.
+     * @param  classTypes
+     *         The {@link java.lang.Class Classes} of the Events to wait for. Never null or empty.
+     * @param  keyExtractor
+     *         The function used to get the key of a fired Event. Never null.
+     * @param  key
+     *         The key the Event must have for the condition to be tested.
+     * @param  condition
+     *         The Predicate to test when Events of the provided types and key are thrown. Never null.
+     * @param  timeout
+     *         The maximum amount of time to wait for, or {@code -1} if there is no timeout.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the timeout, or
+     *         {@code null} if there is no timeout.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classTypes} (or one of them), {@code keyExtractor}, or {@code condition}
+     *             was {@code null}, or {@code classTypes} was empty.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     *
+     * @return A CompletableFuture that completes with the Event.
+     */
+    public <T extends Event> CompletableFuture<T> waitForEventAsync(Collection<Class<? extends T>> classTypes,
+                                                                    ToLongFunction<? super T> keyExtractor, long key,
+                                                                    Predicate<T> condition, long timeout, TimeUnit unit)
+    {
+        Checks.check(!isShutdown(), "Attempted to register a WaitingEvent while the EventWaiter's threadpool was already shut down!");
+        checkClassTypes(classTypes);
+        Checks.notNull(keyExtractor, "The provided key extractor");
+        Checks.notNull(condition, "The provided condition predicate");
+
+        return register(classTypes, keyExtractor, key, condition, timeout, unit);
+    }
+    
+    /**
+     * Subscribes to all {@link net.dv8tion.jda.api.events.Event Events} of the provided type that
+     * return {@code true} when tested with the provided {@link java.util.function.Predicate Predicate},
+     * until the returned {@link Subscription Subscription} is closed or times out.
+     *
+     * <p>Unlike the WaitingEvents registered by {@code waitForEvent}, a Subscription is not completed
+     * by the first matching Event, the provided {@link java.util.function.BiConsumer BiConsumer} is run
+     * for every matching Event instead, along with the Subscription so it can be closed from there.
+     * <br>This is useful for things like menus that handle input over and over again, as they only need
+     * to register once rather than once for every bit of input.
+     *
+     * <p>The timeout of a Subscription is an idle timeout: it only times out once no Event has matched
+     * for the provided amount of time, in which case the {@code timeoutAction} is run.
+     * Closing a Subscription doesn't run the {@code timeoutAction}.
+     *
+     * <p>Subscriptions count towards the {@link EventWaiterBuilder#setMaxWaiters(int) limits} of
+     * the EventWaiter just like any other WaitingEvent.
+     *
+     * @param  <T>
+     *         The type of Event to subscribe to.
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to subscribe to. Never null.
+     * @param  condition
+     *         The Predicate to test when Events of the provided type are thrown. Never null.
+     * @param  action
+     *         The BiConsumer to perform an action every time the condition Predicate returns {@code true}. Never null.
+     * @param  idleTimeout
+     *         The maximum amount of time to wait for between two matching Events, or {@code -1} if there is no timeout.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the idle timeout, or
+     *         {@code null} if there is no timeout.
+     * @param  timeoutAction
+     *         The Runnable to run if the Subscription times out, or {@code null} if there is no action on timeout.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classType}, {@code condition}, or {@code action} was {@code null}.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     *
+     * @return The Subscription, which may already be closed if it was
+     *         {@link EventWaiterBuilder#setOverflowPolicy(OverflowPolicy) rejected}.
+     */
+    public <T extends Event> Subscription subscribe(Class<T> classType, Predicate<T> condition,
+                                                    BiConsumer<T, Subscription> action,
+                                                    long idleTimeout, TimeUnit unit, Runnable timeoutAction)
+    {
+        Checks.check(!isShutdown(), "Attempted to register a WaitingEvent while the EventWaiter's threadpool was already shut down!");
+        Checks.notNull(classType, "The provided class type");
+        Checks.notNull(condition, "The provided condition predicate");
+        Checks.notNull(action, "The provided action consumer");
+
+        return registerSubscription(Collections.singleton(classType), null, 0, condition, action, idleTimeout, unit, timeoutAction);
+    }
+
+    /**
+     * Subscribes to all {@link net.dv8tion.jda.api.events.Event Events} of the provided type with the provided
+     * key that return {@code true} when tested with the provided {@link java.util.function.Predicate Predicate},
+     * until the returned {@link Subscription Subscription} is closed or times out.
+     *
+     * <p>This works the same way as {@link #subscribe(Class, Predicate, BiConsumer, long, TimeUnit, Runnable)}, with the
+     * Subscription being indexed by key as described in {@link #waitForEvent(Class, ToLongFunction, long, Predicate, Consumer)}.
+     *
+     * @param  <T>
+     *         The type of Event to subscribe to.
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to subscribe to. Never null.
+     * @param  keyExtractor
+     *         The function used to get the key of a fired Event. Never null.
+     * @param  key
+     *         The key the Event must have for the condition to be tested.
+     * @param  condition
+     *         The Predicate to test when Events of the provided type and key are thrown. Never null.
+     * @param  action
+     *         The BiConsumer to perform an action every time the condition Predicate returns {@code true}. Never null.
+     * @param  idleTimeout
+     *         The maximum amount of time to wait for between two matching Events, or {@code -1} if there is no timeout.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the idle timeout, or
+     *         {@code null} if there is no timeout.
+     * @param  timeoutAction
+     *         The Runnable to run if the Subscription times out, or {@code null} if there is no action on timeout.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classType}, {@code keyExtractor}, {@code condition}, or {@code action} was {@code null}.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     *
+     * @return The Subscription, which may already be closed if it was
+     *         {@link EventWaiterBuilder#setOverflowPolicy(OverflowPolicy) rejected}.
+     */
+    public <T extends Event> Subscription subscribe(Class<T> classType, ToLongFunction<? super T> keyExtractor, long key,
+                                                    Predicate<T> condition, BiConsumer<T, Subscription> action,
+                                                    long idleTimeout, TimeUnit unit, Runnable timeoutAction)
+    {
+        Checks.check(!isShutdown(), "Attempted to register a WaitingEvent while the EventWaiter's threadpool was already shut down!");
+        Checks.notNull(classType, "The provided class type");
+        Checks.notNull(keyExtractor, "The provided key extractor");
+        Checks.notNull(condition, "The provided condition predicate");
+        Checks.notNull(action, "The provided action consumer");
+
+        return registerSubscription(Collections.singleton(classType), keyExtractor, key, condition, action, idleTimeout, unit, timeoutAction);
+    }
+
+    /**
+     * Subscribes to all {@link net.dv8tion.jda.api.events.Event Events} of any of the provided types with the
+     * provided key that return {@code true} when tested with the provided {@link java.util.function.Predicate Predicate},
+     * until the returned {@link Subscription Subscription} is closed or times out.
+     *
+     * <p>This works the same way as {@link #subscribe(Class, ToLongFunction, long, Predicate, BiConsumer, long, TimeUnit, Runnable)},
+     * with a single Subscription being registered for all of the provided types as described in
+     * {@link #waitForEvent(Collection, Predicate, Consumer, long, TimeUnit, Runnable)}.
+     *
+     * @param  <T>
+     *         The common supertype of the Events to subscribe to.
+     * @param  classTypes
+     *         The {@link java.lang.Class Classes} of the Events to subscribe to. Never null or empty.
+     * @param  keyExtractor
+     *         The function used to get the key of a fired Event. Never null.
+     * @param  key
+     *         The key the Event must have for the condition to be tested.
+     * @param  condition
+     *         The Predicate to test when Events of the provided types and key are thrown. Never null.
+     * @param  action
+     *         The BiConsumer to perform an action every time the condition Predicate returns {@code true}. Never null.
+     * @param  idleTimeout
+     *         The maximum amount of time to wait for between two matching Events, or {@code -1} if there is no timeout.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the idle timeout, or
+     *         {@code null} if there is no timeout.
+     * @param  timeoutAction
+     *         The Runnable to run if the Subscription times out, or {@code null} if there is no action on timeout.
+     *
+     * @throws IllegalArgumentException
+     *         One of two reasons:
+     *         <ul>
+     *             <li>1) Either the {@code classTypes} (or one of them), {@code keyExtractor}, {@code condition}, or
+     *             {@code action} was {@code null}, or {@code classTypes} was empty.</li>
+     *             <li>2) The internal threadpool is shut down, meaning that no more tasks can be submitted.</li>
+     *         </ul>
+     *
+     * @return The Subscription, which may already be closed if it was
+     *         {@link EventWaiterBuilder#setOverflowPolicy(OverflowPolicy) rejected}.
+     */
+    public <T extends Event> Subscription subscribe(Collection<Class<? extends T>> classTypes,
+                                                    ToLongFunction<? super T> keyExtractor, long key,
+                                                    Predicate<T> condition, BiConsumer<T, Subscription> action,
+                                                    long idleTimeout, TimeUnit unit, Runnable timeoutAction)
+    {
+        Checks.check(!isShutdown(), "Attempted to register a WaitingEvent while the EventWaiter's threadpool was already shut down!");
+        checkClassTypes(classTypes);
+        Checks.notNull(keyExtractor, "The provided key extractor");
+        Checks.notNull(condition, "The provided condition predicate");
+        Checks.notNull(action, "The provided action consumer");
+
+        return registerSubscription(classTypes, keyExtractor, key, condition, action, idleTimeout, unit, timeoutAction);
+    }
+
+    @Override
+    @SubscribeEvent
+    public final void onEvent(GenericEvent event)
+    {
+        // Most events fired have nobody waiting on them, in which case the plan is empty
+        for(WaiterBucket bucket : getDispatchPlan(event.getClass()))
+            bucket.attempt(event);
+
+        if(event instanceof ShutdownEvent && shutdownAutomatically)
+        {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Closes this EventWaiter if it doesn't normally shutdown automatically.
+     *
+     * <p><b>IF YOU USED THE DEFAULT CONSTRUCTOR WITH NO ARGUMENTS DO NOT CALL THIS!</b>
+     * <br>Calling this method on an EventWaiter that does shutdown automatically will result in
+     * an {@link java.lang.UnsupportedOperationException UnsupportedOperationException} being thrown.
+     *
+     * @throws UnsupportedOperationException
+     *         The EventWaiter is supposed to close automatically.
+     */
+    public void shutdown()
+    {
+        if(shutdownAutomatically)
+            throw new UnsupportedOperationException("Shutting down EventWaiters that are set to automatically close is unsupported!");
+
+        scheduler.shutdown();
+    }
+
+    private <T> void runAction(Class<?> classType, Consumer<T> action, T event)
+    {
+        if(actionExecutor == null)
+        {
+            invokeAction(classType, action, event);
+            return;
+        }
+
+        long queued = System.nanoTime();
+        try
+        {
+            actionExecutor.execute(() -> {
+                metrics.recordActionQueueDelay(classType, System.nanoTime() - queued);
+                invokeAction(classType, action, event);
+            });
+        }
+        catch (RejectedExecutionException ex)
+        {
+            LOG.error("The action executor rejected an action", ex);
+        }
+    }
+
+    private <T> void invokeAction(Class<?> classType, Consumer<T> action, T event)
+    {
+        long start = instrumented ? System.nanoTime() : 0;
+        try
+        {
+            action.accept(event);
+        }
+        catch (Exception ex)
+        {
+            LOG.error("Failed to run action", ex);
+        }
+        if(instrumented)
+            metrics.recordAction(classType, System.nanoTime() - start);
+    }
+
+    static ScheduledExecutorService newDefaultThreadpool()
+    {
+        // Completed WaitingEvents cancel their timeout, so don't keep those around until they would have run
+        ScheduledThreadPoolExecutor threadpool = new ScheduledThreadPoolExecutor(1);
+        threadpool.setRemoveOnCancelPolicy(true);
+        return threadpool;
+    }
+
+    private static void checkClassTypes(Collection<? extends Class<?>> classTypes)
+    {
+        Checks.notEmpty(classTypes, "The provided class types");
+        Checks.noneNull(classTypes, "The provided class types");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ToLongFunction<GenericEvent> asEventKeyExtractor(ToLongFunction<?> keyExtractor)
+    {
+        // Keyed WaitingEvents are only ever attempted with events of the types they were registered for
+        return (ToLongFunction<GenericEvent>) keyExtractor;
+    }
+
+    private static ScheduledExecutorService checkThreadpool(ScheduledExecutorService threadpool)
+    {
+        Checks.notNull(threadpool, "ScheduledExecutorService");
+        Checks.check(!threadpool.isShutdown(), "Cannot construct EventWaiter with a closed ScheduledExecutorService!");
+        return threadpool;
+    }
+
+    private WaiterBucket getBucket(Class<?> classType)
+    {
+        WaiterBucket bucket = waitingEvents.get(classType);
+        if(bucket == null)
+        {
+            bucket = waitingEvents.computeIfAbsent(classType, c -> new WaiterBucket(c, instrumented ? metrics : null));
+            // The bucket is visible now, so any plan built before this point is outdated
+            bucketGeneration.incrementAndGet();
+        }
+        return bucket;
+    }
+
+    private WaiterBucket[] getDispatchPlan(Class<?> eventType)
+    {
+        // The generation has to be read before the buckets are, so that a plan
+        // racing with a new registration is never stored as up-to-date.
+        int generation = bucketGeneration.get();
+        DispatchPlan plan = dispatchPlans.get(eventType);
+        if(plan != null && plan.generation == generation)
+            return plan.buckets;
+
+        List<WaiterBucket> buckets = new ArrayList<>();
+        Class<?> c = eventType;
+
+        // Runs at least once for the fired Event, at most
+        // once for each superclass (excluding Object) because
+        // Class#getSuperclass() returns null when the superclass
+        // is primitive, void, or (in this case) Object.
+        while(c != null)
+        {
+            WaiterBucket bucket = waitingEvents.get(c);
+            if(bucket != null)
+                buckets.add(bucket);
+            c = c.getSuperclass();
+        }
+
+        plan = new DispatchPlan(generation, buckets.isEmpty() ? NO_BUCKETS : buckets.toArray(NO_BUCKETS));
+        dispatchPlans.put(eventType, plan);
+        return plan.buckets;
+    }
+
+    private <T extends Event> CompletableFuture<T> register(Class<T> classType, ToLongFunction<? super T> keyExtractor, long key,
+                                                            Predicate<T> condition, long timeout, TimeUnit unit)
+    {
+        return register(Collections.singleton(classType), keyExtractor, key, condition, timeout, unit);
+    }
+
+    private <T extends Event> CompletableFuture<T> register(Collection<? extends Class<? extends T>> classTypes,
+                                                            ToLongFunction<? super T> keyExtractor, long key,
+                                                            Predicate<T> condition, long timeout, TimeUnit unit)
+    {
+        return register(new CompletableFuture<>(), classTypes, keyExtractor, key, condition, null, timeout, unit);
+    }
+
+    private <T extends Event> Subscription registerSubscription(Collection<? extends Class<? extends T>> classTypes,
+                                                                ToLongFunction<? super T> keyExtractor, long key,
+                                                                Predicate<T> condition, BiConsumer<T, Subscription> action,
+                                                                long idleTimeout, TimeUnit unit, Runnable timeoutAction)
+    {
+        Class<?> classType = classTypes.iterator().next();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Subscription subscription = new Subscription(future);
+        Consumer<T> perEvent = event -> action.accept(event, subscription);
+
+        register(future, classTypes, keyExtractor, key, condition, event -> runAction(classType, perEvent, event), idleTimeout, unit);
+        // The future of a Subscription is never completed normally, only closed or timed out
+        future.whenComplete((event, t) -> {
+            if(t != null)
+                onFailure(classType, t, timeoutAction);
+        });
+        return subscription;
+    }
+
+    private <T extends Event> CompletableFuture<T> register(CompletableFuture<T> future,
+                                                            Collection<? extends Class<? extends T>> classTypes,
+                                                            ToLongFunction<? super T> keyExtractor, long key,
+                                                            Predicate<T> condition, Consumer<T> listener,
+                                                            long timeout, TimeUnit unit)
+    {
+        // Measurements of WaitingEvents registered for several types are reported under the first one
+        Class<?> classType = classTypes.iterator().next();
+        WaitingEvent<T> we = new WaitingEvent<>(condition, future, listener, sequence.incrementAndGet(),
+                                                instrumented ? System.nanoTime() : 0);
+
+        ConcurrentHashMap<Long, WaiterGroup> keyGroups = null;
+        WaiterGroup keyGroup = null;
+        if(keyExtractor != null)
+        {
+            keyGroups = waitersByKey.computeIfAbsent(keyExtractor, k -> new ConcurrentHashMap<>());
+            keyGroup = acquireKeySlot(keyGroups, getMaxWaitersPerKey(keyExtractor), key, we);
+            if(keyGroup == null)
+                return reject(classType, future, "Too many WaitingEvents are registered with the key " + key);
+        }
+        if(acquireSlot(allWaiters, maxWaiters, we) != ACQUIRED)
+        {
+            if(keyGroup != null)
+                releaseKeySlot(keyGroups, key, keyGroup, we);
+            return reject(classType, future, "Too many WaitingEvents are registered");
+        }
+
+        List<Runnable> removals = new ArrayList<>(classTypes.size());
+        for(Class<?> type : classTypes)
+        {
+            if(keyExtractor == null)
+            {
+                Set<WaitingEvent<?>> set = getBucket(type).waiters;
+                set.add(we);
+                removals.add(() -> set.remove(we));
+            }
+            else
+            {
+                ConcurrentHashMap<Long, Set<WaitingEvent<?>>> index = getBucket(type).keyedWaiters
+                    .computeIfAbsent(asEventKeyExtractor(keyExtractor), k -> new ConcurrentHashMap<>());
+                // Sets are created and discarded atomically per key (see WaiterBucket#removeKeyed),
+                // so a WaitingEvent is never added to a set that was already dropped from the index.
+                index.compute(key, (k, set) -> {
+                    if(set == null)
+                        set = ConcurrentHashMap.newKeySet();
+                    set.add(we);
+                    return set;
+                });
+                removals.add(() -> WaiterBucket.removeKeyed(index, key, we));
+            }
+        }
+
+        // However the WaitingEvent completes (matched, timed out, or cancelled by the caller)
+        // we release it and its timeout right away.
+        // The future handed out for a single event is only completed after that, so its dependent
+        // stages can register a WaitingEvent again without being rejected by the limit for its key.
+        CompletableFuture<T> result = listener == null ? new CompletableFuture<>() : we.future;
+        ConcurrentHashMap<Long, WaiterGroup> groups = keyGroups;
+        WaiterGroup group = keyGroup;
+        we.future.whenComplete((event, t) -> {
+            removals.forEach(Runnable::run);
+            we.cancelTimeout();
+            releaseSlot(allWaiters, we);
+            if(group != null)
+                releaseKeySlot(groups, key, group, we);
+            if(instrumented && t instanceof TimeoutException)
+                metrics.recordTimeout(classType);
+            if(result != we.future)
+            {
+                if(t != null)
+                    result.completeExceptionally(t);
+                else
+                    result.complete(event);
+            }
+        });
+        // Cancelling the future handed out removes the WaitingEvent
+        if(result != we.future)
+            result.whenComplete((event, t) -> we.future.cancel(false));
+
+        if(timeout > 0 && unit != null && listener != null)
+        {
+            long idleNanos = unit.toNanos(timeout);
+            we.lastMatched = System.nanoTime();
+            we.timeout = scheduler.schedule(() -> expire(we, idleNanos), timeout, unit);
+
+            if(we.future.isDone())
+                we.cancelTimeout();
+        }
+        else if(timeout > 0 && unit != null)
+        {
+            // Only the thread that completes the future may act on it, if an
+            // event already claimed it then the timeout is simply dropped.
+            we.timeout = scheduler.schedule(() -> we.future.completeExceptionally(new TimeoutException()), timeout, unit);
+
+            // The WaitingEvent might have been completed before its timeout was even scheduled
+            if(we.future.isDone())
+                we.cancelTimeout();
+        }
+
+        return result;
+    }
+
+    private void expire(WaitingEvent<?> we, long idleNanos)
+    {
+        // Matches only record when they happened rather than rescheduling the timeout every
+        // time, so whenever it runs out we check whether it has to be pushed back instead.
+        long remaining = idleNanos - (System.nanoTime() - we.lastMatched);
+        if(remaining <= 0)
+        {
+            we.future.completeExceptionally(new TimeoutException());
+            return;
+        }
+        if(we.future.isDone() || scheduler.isShutdown())
+            return;
+
+        we.timeout = scheduler.schedule(() -> expire(we, idleNanos), remaining, TimeUnit.NANOSECONDS);
+        if(we.future.isDone())
+            we.cancelTimeout();
+    }
+
+    private int getMaxWaitersPerKey(ToLongFunction<?> keyExtractor)
+    {
+        Integer max = keyLimits.get(keyExtractor);
+        return max == null ? maxWaitersPerKey : max;
+    }
+
+    private WaiterGroup acquireKeySlot(ConcurrentHashMap<Long, WaiterGroup> groups, int max, long key, WaitingEvent<?> we)
+    {
+        while(true)
+        {
+            // Waiters only need to be ordered by age if we may have to evict the oldest one
+            WaiterGroup group = groups.computeIfAbsent(key, k -> new WaiterGroup(max > 0));
+            int result = acquireSlot(group, max, we);
+            // A retired group is about to be dropped from the map, we'll get a new one next time
+            if(result != RETIRED)
+                return result == ACQUIRED ? group : null;
+        }
+    }
+
+    private int acquireSlot(WaiterGroup group, int max, WaitingEvent<?> we)
+    {
+        while(true)
+        {
+            int count = group.count.get();
+            if(count < 0)
+                return RETIRED;
+            if(max <= 0 || count < max)
+            {
+                if(group.count.compareAndSet(count, count + 1))
+                {
+                    if(group.waiters != null)
+                        group.waiters.put(we.seq, we);
+                    return ACQUIRED;
+                }
+                continue;
+            }
+
+            if(overflowPolicy == OverflowPolicy.REJECT)
+                return REJECTED;
+
+            // Completing the oldest WaitingEvent releases its slot, after which we try again.
+            // It may already be completed and just not have released its slot yet, or still be on
+            // its way into the group, in which case we yield to the thread doing that instead of spinning.
+            Map.Entry<Long, WaitingEvent<?>> oldest = group.waiters.firstEntry();
+            if(oldest == null || oldest.getValue().future.isDone())
+                Thread.yield();
+            else if(overflowPolicy == OverflowPolicy.EVICT_OLDEST)
+                oldest.getValue().future.cancel(false);
+            else
+                oldest.getValue().future.completeExceptionally(new TimeoutException());
+        }
+    }
+
+    private void releaseSlot(WaiterGroup group, WaitingEvent<?> we)
+    {
+        if(group.waiters != null)
+            group.waiters.remove(we.seq);
+        group.count.decrementAndGet();
+    }
+
+    private void releaseKeySlot(ConcurrentHashMap<Long, WaiterGroup> groups, long key, WaiterGroup group, WaitingEvent<?> we)
+    {
+        if(group.waiters != null)
+            group.waiters.remove(we.seq);
+        // Retire the group once it's empty so we don't keep one around for every key ever used
+        if(group.count.decrementAndGet() == 0 && group.count.compareAndSet(0, -1))
+            groups.remove(key, group);
+    }
+
+    private <T> CompletableFuture<T> reject(Class<?> classType, CompletableFuture<T> future, String reason)
+    {
+        if(instrumented)
+            metrics.recordRejection(classType);
+        future.completeExceptionally(new RejectedExecutionException(reason));
+        return future;
+    }
+
+    private <T> void whenCompleted(Class<?> classType, CompletableFuture<T> future, Consumer<T> action, Runnable timeoutAction)
+    {
+        future.whenComplete((event, t) -> {
+            if(t == null)
+                runAction(classType, action, event);
+            else
+                onFailure(classType, t, timeoutAction);
+        });
+    }
+
+    private void onFailure(Class<?> classType, Throwable t, Runnable timeoutAction)
+    {
+        if(t instanceof RejectedExecutionException)
+        {
+            LOG.debug("WaitingEvent for {} was rejected: {}", classType.getSimpleName(), t.getMessage());
+        }
+        else if(t instanceof TimeoutException && timeoutAction != null)
+        {
+            try
+            {
+                timeoutAction.run();
+            }
+            catch (Exception ex)
+            {
+                LOG.error("Failed to run timeoutAction", ex);
+            }
+        }
+    }
+
+    /**
+     * The WaiterBuckets an event of a concrete type has to be dispatched to, in order
+     * from the type itself up through its superclasses.
+     * <br>Buckets are never removed once created, so a plan only has to be rebuilt
+     * when a WaitingEvent is registered for a type that had no bucket yet.
+     */
+    private static class DispatchPlan
+    {
+        final int generation;
+        final WaiterBucket[] buckets;
+
+        DispatchPlan(int generation, WaiterBucket[] buckets)
+        {
+            this.generation = generation;
+            this.buckets = buckets;
+        }
+    }
+
+    /**
+     * All the WaitingEvents registered for a single event type, either
+     * unkeyed or indexed by the key of their {@link ToLongFunction key extractor}.
+     */
+    private static class WaiterBucket
+    {
+        final Class<?> type;
+        final EventWaiterMetrics metrics;
+        final Set<WaitingEvent<?>> waiters = ConcurrentHashMap.newKeySet();
+        final ConcurrentHashMap<ToLongFunction<GenericEvent>, ConcurrentHashMap<Long, Set<WaitingEvent<?>>>> keyedWaiters = new ConcurrentHashMap<>();
+
+        WaiterBucket(Class<?> type, EventWaiterMetrics metrics)
+        {
+            this.type = type;
+            this.metrics = metrics;
+        }
+
+        int size()
+        {
+            int size = waiters.size();
+            for(ConcurrentHashMap<Long, Set<WaitingEvent<?>>> index : keyedWaiters.values())
+            {
+                for(Set<WaitingEvent<?>> set : index.values())
+                    size += set.size();
+            }
+            return size;
+        }
+
+        void attempt(GenericEvent event)
+        {
+            // WaitingEvent#attempt invocations that return true have either passed their condition
+            // tests and executed the action, or were already completed by another thread (or timed out).
+            // We remove all of those (the ones that return true).
+            if(!waiters.isEmpty())
+                waiters.removeIf(wEvent -> attempt(wEvent, event));
+
+            if(keyedWaiters.isEmpty())
+                return;
+            for(Map.Entry<ToLongFunction<GenericEvent>, ConcurrentHashMap<Long, Set<WaitingEvent<?>>>> entry : keyedWaiters.entrySet())
+            {
+                ConcurrentHashMap<Long, Set<WaitingEvent<?>>> index = entry.getValue();
+                if(index.isEmpty())
+                    continue;
+                long key = entry.getKey().applyAsLong(event);
+                Set<WaitingEvent<?>> set = index.get(key);
+                if(set != null)
+                {
+                    set.removeIf(wEvent -> attempt(wEvent, event));
+                    if(set.isEmpty())
+                        index.computeIfPresent(key, (k, s) -> s.isEmpty() ? null : s);
+                }
+            }
+        }
+
+        boolean attempt(WaitingEvent<?> wEvent, GenericEvent event)
+        {
+            if(metrics == null)
+                return wEvent.attempt(event);
+            if(wEvent.future.isDone())
+                return true;
+
+            long start = System.nanoTime();
+            boolean passed = wEvent.test(event);
+            long end = System.nanoTime();
+            metrics.recordAttempt(type, passed, end - start);
+            if(passed && wEvent.match(event))
+                metrics.recordMatch(type, end - wEvent.registered);
+            return wEvent.future.isDone();
+        }
+
+        static void removeKeyed(ConcurrentHashMap<Long, Set<WaitingEvent<?>>> index, long key, WaitingEvent<?> we)
+        {
+            // Drop the set once it's empty, otherwise we'd keep one around for every key ever used
+            index.computeIfPresent(key, (k, set) -> {
+                set.remove(we);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+    
+    /**
+     * The WaitingEvents counted towards one of the limits of this EventWaiter, ordered
+     * from oldest to newest if they may have to be evicted.
+     * <br>The count of a group for a single key is set to {@code -1} once it is empty and
+     * about to be removed, after which no more WaitingEvents can be added to it.
+     */
+    private static class WaiterGroup
+    {
+        final AtomicInteger count = new AtomicInteger();
+        final ConcurrentSkipListMap<Long, WaitingEvent<?>> waiters;
+
+        WaiterGroup(boolean ordered)
+        {
+            this.waiters = ordered ? new ConcurrentSkipListMap<>() : null;
+        }
+    }
+
+    private static class WaitingEvent<T extends GenericEvent>
+    {
+        final Predicate<T> condition;
+        final CompletableFuture<T> future;
+        final Consumer<T> listener;
+        final long seq;
+        final long registered;
+        volatile TimeoutScheduler.Timeout timeout;
+        volatile long lastMatched;
+        
+        WaitingEvent(Predicate<T> condition, CompletableFuture<T> future, Consumer<T> listener, long seq, long registered)
+        {
+            this.condition = condition;
+            this.future = future;
+            this.listener = listener;
+            this.seq = seq;
+            this.registered = registered;
+        }
+
+        void cancelTimeout()
+        {
+            TimeoutScheduler.Timeout timeout = this.timeout;
+            if(timeout != null)
+                timeout.cancel();
+        }
+        
+        boolean attempt(GenericEvent event)
+        {
+            // Events for the same WaitingEvent may be dispatched from several shards at once,
+            // but only one of them can complete the future and run the action.
+            if(future.isDone())
+                return true;
+            if(test(event))
+                match(event);
+            return future.isDone();
+        }
+
+        // WaitingEvents are only ever attempted with events of the types they were registered for
+        @SuppressWarnings("unchecked")
+        boolean test(GenericEvent event)
+        {
+            return condition.test((T) event);
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean match(GenericEvent event)
+        {
+            // Subscriptions stay registered until they're closed or time out
+            if(listener == null)
+                return future.complete((T) event);
+            if(future.isDone())
+                return false;
+            lastMatched = System.nanoTime();
+            listener.accept((T) event);
+            return true;
+        }
+    }
+
+    /**
+     * A WaitingEvent registered through one of the {@code subscribe} methods of an EventWaiter,
+     * which stays registered until it is {@link #close() closed} or times out.
+     */
+    public static final class Subscription
+    {
+        private final CompletableFuture<?> future;
+
+        private Subscription(CompletableFuture<?> future)
+        {
+            this.future = future;
+        }
+
+        /**
+         * Closes this Subscription, so its action won't be run for any more Events.
+         * <br>This doesn't run its timeout action, and does nothing if it is already closed.
+         */
+        public void close()
+        {
+            future.cancel(false);
+        }
+
+        /**
+         * Gets whether this Subscription was closed, timed out, or was rejected by the EventWaiter.
+         *
+         * @return {@code true} if this Subscription is no longer registered, {@code false} otherwise.
+         */
+        public boolean isClosed()
+        {
+            return future.isDone();
+        }
+    }
+
+    /**
+     * What an EventWaiter does when a new WaitingEvent is registered while one of its
+     * {@link EventWaiterBuilder#setMaxWaiters(int) limits} is already reached.
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * The new WaitingEvent is rejected.
+         * <br>The CompletableFutures of rejected WaitingEvents are completed exceptionally with a
+         * {@link java.util.concurrent.RejectedExecutionException RejectedExecutionException}, and
+         * neither the action nor the timeout action of the callback based {@code waitForEvent} methods is run.
+         */
+        REJECT,
+
+        /**
+         * The oldest WaitingEvent counted towards the limit is removed, as if it was cancelled.
+         * <br>Neither its action nor its timeout action is run.
+         */
+        EVICT_OLDEST,
+
+        /**
+         * The oldest WaitingEvent counted towards the limit times out early.
+         * <br>Its timeout action is run right away, on the thread registering the new WaitingEvent.
+         */
+        TIMEOUT_OLDEST
     }
 }
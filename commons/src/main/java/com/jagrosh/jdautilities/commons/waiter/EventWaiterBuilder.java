@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.waiter;
+
+import net.dv8tion.jda.internal.utils.Checks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.ToLongFunction;
+
+/**
+ * A simple builder used to create an {@link EventWaiter EventWaiter} with
+ * settings beyond those available through its constructors.
+ *
+ * <p>Like the {@link EventWaiter#EventWaiter() default constructor}, an EventWaiter built without a
+ * {@link TimeoutScheduler TimeoutScheduler} uses its own single thread executor, and an EventWaiter
+ * built without changing {@link #setShutdownAutomatically(boolean)} shuts down when a
+ * {@link net.dv8tion.jda.api.events.session.ShutdownEvent ShutdownEvent} is fired.
+ */
+public class EventWaiterBuilder
+{
+    private TimeoutScheduler scheduler;
+    private boolean shutdownAutomatically = true;
+    private Executor actionExecutor;
+    private EventWaiterMetrics metrics = EventWaiterMetrics.NONE;
+    private int maxWaiters = 0;
+    private int maxWaitersPerKey = 0;
+    private final Map<ToLongFunction<?>, Integer> keyLimits = new HashMap<>();
+    private EventWaiter.OverflowPolicy overflowPolicy = EventWaiter.OverflowPolicy.REJECT;
+
+    /**
+     * Builds an {@link EventWaiter EventWaiter} with the provided settings.
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided TimeoutScheduler is shut down.
+     *
+     * @return The EventWaiter built.
+     */
+    public EventWaiter build()
+    {
+        TimeoutScheduler scheduler = this.scheduler == null
+            ? new ExecutorTimeoutScheduler(EventWaiter.newDefaultThreadpool())
+            : this.scheduler;
+        return new EventWaiter(scheduler, shutdownAutomatically, actionExecutor, metrics,
+                               maxWaiters, maxWaitersPerKey, new HashMap<>(keyLimits), overflowPolicy);
+    }
+
+    /**
+     * Sets the {@link TimeoutScheduler TimeoutScheduler} that handles the timeouts of WaitingEvents.
+     *
+     * @param  scheduler
+     *         The TimeoutScheduler to use, or {@code null} to use a single thread executor.
+     *
+     * @return This builder
+     *
+     * @see    HashedWheelTimeoutScheduler
+     */
+    public EventWaiterBuilder setTimeoutScheduler(TimeoutScheduler scheduler)
+    {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    /**
+     * Sets the {@link java.util.concurrent.ScheduledExecutorService ScheduledExecutorService} that
+     * handles the timeouts of WaitingEvents.
+     * <br>This is the same as the threadpool provided to {@link EventWaiter#EventWaiter(ScheduledExecutorService, boolean)}.
+     *
+     * @param  threadpool
+     *         The ScheduledExecutorService to use, or {@code null} to use a single thread executor.
+     *
+     * @return This builder
+     */
+    public EventWaiterBuilder setThreadpool(ScheduledExecutorService threadpool)
+    {
+        this.scheduler = threadpool == null ? null : new ExecutorTimeoutScheduler(threadpool);
+        return this;
+    }
+
+    /**
+     * Sets whether the {@link TimeoutScheduler TimeoutScheduler} will shutdown automatically when a
+     * {@link net.dv8tion.jda.api.events.session.ShutdownEvent ShutdownEvent} is fired.
+     * <br>See {@link EventWaiter#EventWaiter(ScheduledExecutorService, boolean)} for more details.
+     *
+     * <p>This is {@code true} by default.
+     *
+     * @param  shutdownAutomatically
+     *         {@code false} if shutting down the EventWaiter is the responsibility of the developer.
+     *
+     * @return This builder
+     */
+    public EventWaiterBuilder setShutdownAutomatically(boolean shutdownAutomatically)
+    {
+        this.shutdownAutomatically = shutdownAutomatically;
+        return this;
+    }
+
+    /**
+     * Sets the {@link java.util.concurrent.Executor Executor} the actions of WaitingEvents are run on.
+     *
+     * <p>By default, the action of a WaitingEvent is run on the thread its Event was fired on, meaning
+     * one slow action holds up every other Event of that shard. When an action executor is set, conditions
+     * are still tested on the thread the Event was fired on, but the action of a matching WaitingEvent is
+     * handed off to the executor. A WaitingEvent still only ever runs its action once, though the actions of a
+     * {@link EventWaiter.Subscription Subscription} may run concurrently for Events fired at the same time.
+     * <br>How long actions wait in the executor's queue is reported to the
+     * {@link #setMetrics(EventWaiterMetrics) metrics}.
+     *
+     * <p>Note this only applies to the callback based {@code waitForEvent} and {@code subscribe} methods, dependent stages of the
+     * CompletableFutures returned by {@code waitForEventAsync} can be run on an executor with their {@code async}
+     * variants instead.
+     *
+     * @param  actionExecutor
+     *         The Executor to run actions on, or {@code null} to run them on the thread the Event was fired on.
+     *
+     * @return This builder
+     */
+    public EventWaiterBuilder setActionExecutor(Executor actionExecutor)
+    {
+        this.actionExecutor = actionExecutor;
+        return this;
+    }
+
+    /**
+     * Sets the {@link EventWaiterMetrics EventWaiterMetrics} that the EventWaiter reports its measurements to.
+     *
+     * @param  metrics
+     *         The EventWaiterMetrics to use, or {@code null} to not report any measurements.
+     *
+     * @return This builder
+     */
+    public EventWaiterBuilder setMetrics(EventWaiterMetrics metrics)
+    {
+        this.metrics = metrics == null ? EventWaiterMetrics.NONE : metrics;
+        return this;
+    }
+
+    /**
+     * Sets the maximum amount of WaitingEvents that can be registered to the EventWaiter at once.
+     * <br>Once reached, registering another WaitingEvent is handled according to the
+     * {@link #setOverflowPolicy(EventWaiter.OverflowPolicy) overflow policy}.
+     *
+     * <p>This is unlimited ({@code 0}) by default.
+     *
+     * @param  maxWaiters
+     *         The maximum amount of WaitingEvents, or {@code 0} for no limit.
+     *
+     * @return This builder
+     *
+     * @see    EventWaiter#getWaiterCount()
+     */
+    public EventWaiterBuilder setMaxWaiters(int maxWaiters)
+    {
+        Checks.notNegative(maxWaiters, "Max waiters");
+        this.maxWaiters = maxWaiters;
+        return this;
+    }
+
+    /**
+     * Sets the maximum amount of WaitingEvents that can be registered to the EventWaiter with the same key at once,
+     * for key extractors without a limit of their own.
+     * <br>Once reached, registering another WaitingEvent with that key is handled according to the
+     * {@link #setOverflowPolicy(EventWaiter.OverflowPolicy) overflow policy}.
+     *
+     * <p>This only applies to WaitingEvents registered with a key, such as those of the Menus, which are
+     * keyed by the ID of their channel. WaitingEvents are counted separately for each key extractor,
+     * so the same snowflake used as a channel key by one and as a user key by another doesn't share a limit.
+     *
+     * <p>This is unlimited ({@code 0}) by default.
+     *
+     * @param  maxWaitersPerKey
+     *         The maximum amount of WaitingEvents per key, or {@code 0} for no limit.
+     *
+     * @return This builder
+     *
+     * @see    #setMaxWaitersPerKey(ToLongFunction, int)
+     * @see    EventWaiter#getWaiterCount(ToLongFunction, long)
+     */
+    public EventWaiterBuilder setMaxWaitersPerKey(int maxWaitersPerKey)
+    {
+        Checks.notNegative(maxWaitersPerKey, "Max waiters per key");
+        this.maxWaitersPerKey = maxWaitersPerKey;
+        return this;
+    }
+
+    /**
+     * Sets the maximum amount of WaitingEvents that can be registered to the EventWaiter with the provided
+     * key extractor and the same key at once, in place of the {@link #setMaxWaitersPerKey(int) default limit}.
+     *
+     * <p>This allows separate limits for each kind of key, for example capping WaitingEvents keyed by channel ID
+     * per channel and WaitingEvents keyed by user ID per user. Like the key extractors are grouped by when
+     * registering, the limit applies to the same key extractor instance.
+     *
+     * @param  keyExtractor
+     *         The key extractor the limit applies to. Never null.
+     * @param  maxWaitersPerKey
+     *         The maximum amount of WaitingEvents per key, or {@code 0} for no limit.
+     *
+     * @return This builder
+     *
+     * @see    EventWaiter#getWaiterCount(ToLongFunction, long)
+     */
+    public EventWaiterBuilder setMaxWaitersPerKey(ToLongFunction<?> keyExtractor, int maxWaitersPerKey)
+    {
+        Checks.notNull(keyExtractor, "Key extractor");
+        Checks.notNegative(maxWaitersPerKey, "Max waiters per key");
+        this.keyLimits.put(keyExtractor, maxWaitersPerKey);
+        return this;
+    }
+
+    /**
+     * Sets what the EventWaiter does when a WaitingEvent is registered while one of its limits is reached.
+     *
+     * <p>This is {@link EventWaiter.OverflowPolicy#REJECT REJECT} by default.
+     *
+     * @param  overflowPolicy
+     *         The OverflowPolicy to use. Never null.
+     *
+     * @return This builder
+     */
+    public EventWaiterBuilder setOverflowPolicy(EventWaiter.OverflowPolicy overflowPolicy)
+    {
+        Checks.notNull(overflowPolicy, "OverflowPolicy");
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.waiter;
+
+/**
+ * Receives measurements from an {@link EventWaiter EventWaiter}, so they can be bridged
+ * to whatever metrics system a bot uses.
+ *
+ * <p>Every method has a no-op default implementation, so implementations only need to override
+ * what they are interested in. Methods are called on the hot path of the EventWaiter, often from
+ * several threads at once, so they should be thread-safe and return quickly.
+ * <br>Timings are reported as single measurements in nanoseconds, to be aggregated into counters
+ * or histograms by the implementation. An EventWaiter using {@link #NONE} doesn't take any of them.
+ *
+ * <p>The amount of WaitingEvents currently registered for each type of Event is not pushed here,
+ * gauges can poll {@link EventWaiter#getWaiterCounts()} instead.
+ *
+ * @see    EventWaiterBuilder#setMetrics(EventWaiterMetrics)
+ */
+public interface EventWaiterMetrics
+{
+    /**
+     * EventWaiterMetrics that ignore every measurement, used by default.
+     */
+    EventWaiterMetrics NONE = new EventWaiterMetrics() {};
+
+    /**
+     * Called when the action of a WaitingEvent starts running on the
+     * {@link EventWaiterBuilder#setActionExecutor(java.util.concurrent.Executor) action executor}.
+     *
+     * @param  eventType
+     *         The type of Event the WaitingEvent was registered for.
+     * @param  nanos
+     *         How long the action waited in the executor's queue, in nanoseconds.
+     */
+    default void recordActionQueueDelay(Class<?> eventType, long nanos) {}
+
+    /**
+     * Called each time the condition of a WaitingEvent is tested against an Event.
+     *
+     * @param  eventType
+     *         The type of Event the WaitingEvent was registered for.
+     * @param  matched
+     *         Whether the condition passed.
+     * @param  nanos
+     *         How long testing the condition took, in nanoseconds.
+     */
+    default void recordAttempt(Class<?> eventType, boolean matched, long nanos) {}
+
+    /**
+     * Called when a WaitingEvent is completed by an Event that passed its condition.
+     * <br>This is called at most once per WaitingEvent, even if several Events pass its condition at once.
+     *
+     * @param  eventType
+     *         The type of Event the WaitingEvent was registered for.
+     * @param  nanos
+     *         How long the WaitingEvent was registered before it matched, in nanoseconds.
+     */
+    default void recordMatch(Class<?> eventType, long nanos) {}
+
+    /**
+     * Called when a WaitingEvent times out, including when it is timed out early by
+     * {@link EventWaiter.OverflowPolicy#TIMEOUT_OLDEST OverflowPolicy.TIMEOUT_OLDEST}.
+     *
+     * @param  eventType
+     *         The type of Event the WaitingEvent was registered for.
+     */
+    default void recordTimeout(Class<?> eventType) {}
+
+    /**
+     * Called when a WaitingEvent is rejected because one of the
+     * {@link EventWaiterBuilder#setMaxWaiters(int) limits} of the EventWaiter is reached.
+     *
+     * @param  eventType
+     *         The type of Event the WaitingEvent was registered for.
+     */
+    default void recordRejection(Class<?> eventType) {}
+
+    /**
+     * Called after the action of a WaitingEvent registered through one of the callback
+     * based {@code waitForEvent} or {@code subscribe} methods has run, whether or not it threw.
+     *
+     * @param  eventType
+     *         The type of Event the WaitingEvent was registered for.
+     * @param  nanos
+     *         How long the action took, in nanoseconds.
+     */
+    default void recordAction(Class<?> eventType, long nanos) {}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.waiter;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link TimeoutScheduler TimeoutScheduler} that schedules each timeout
+ * as its own task on a {@link java.util.concurrent.ScheduledExecutorService ScheduledExecutorService}.
+ *
+ * <p>Cancelled tasks are only removed from the executor's queue if it is a
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor ScheduledThreadPoolExecutor} with its
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor#setRemoveOnCancelPolicy(boolean) remove-on-cancel policy}
+ * enabled, otherwise they stay queued until their delay elapses.
+ */
+class ExecutorTimeoutScheduler implements TimeoutScheduler
+{
+    private final ScheduledExecutorService threadpool;
+
+    ExecutorTimeoutScheduler(ScheduledExecutorService threadpool)
+    {
+        this.threadpool = threadpool;
+    }
+
+    @Override
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        ScheduledFuture<?> future = threadpool.schedule(task, delay, unit);
+        return () -> future.cancel(false);
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return threadpool.isShutdown();
+    }
+
+    @Override
+    public void shutdown()
+    {
+        threadpool.shutdown();
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.waiter;
+
+import net.dv8tion.jda.internal.utils.Checks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link TimeoutScheduler TimeoutScheduler} backed by a hashed timing wheel.
+ *
+ * <p>Rather than keeping every timeout in a priority queue, timeouts are hashed into a fixed
+ * amount of buckets (the "wheel") by their deadline, and a single worker thread expires the
+ * timeouts of one bucket every tick. This makes both scheduling and cancelling a timeout
+ * constant-time operations, and cancelled timeouts are released by the worker on its next tick
+ * rather than when their deadline would have elapsed.
+ *
+ * <p>In exchange, timeouts are only as precise as the tick duration, and will run up to one tick
+ * late. This is a good fit for WaitingEvents, whose timeouts are usually measured in minutes.
+ *
+ * <p>Timeouts are run on the worker thread, so they should not block. Any timeouts still pending when
+ * this is {@link #shutdown() shutdown} are dropped.
+ *
+ * @see    EventWaiter#EventWaiter(TimeoutScheduler, boolean)
+ */
+public class HashedWheelTimeoutScheduler implements TimeoutScheduler
+{
+    private static final Logger LOG = LoggerFactory.getLogger(HashedWheelTimeoutScheduler.class);
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<WheelTimeout> pendingTimeouts;
+    private final Queue<WheelTimeout> cancelledTimeouts;
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean shutdown;
+
+    // Only accessed by the worker thread
+    private long tick;
+
+    /**
+     * Constructs a HashedWheelTimeoutScheduler that ticks every 100 milliseconds
+     * with a wheel of 512 buckets.
+     */
+    public HashedWheelTimeoutScheduler()
+    {
+        this(100, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * Constructs a HashedWheelTimeoutScheduler with the provided tick duration and wheel size.
+     *
+     * <p>A single turn of the wheel lasts {@code tickDuration * ticksPerWheel}, timeouts
+     * longer than that are kept in their bucket for as many turns as needed.
+     *
+     * @param  tickDuration
+     *         The duration between two ticks, which is also the precision of timeouts.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the tick duration.
+     * @param  ticksPerWheel
+     *         The amount of buckets in the wheel, rounded up to the next power of two.
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the unit is {@code null}, or if the tick duration or the amount of ticks per wheel are not positive.
+     */
+    public HashedWheelTimeoutScheduler(long tickDuration, TimeUnit unit, int ticksPerWheel)
+    {
+        Checks.notNull(unit, "TimeUnit");
+        Checks.positive(tickDuration, "Tick duration");
+        Checks.check(ticksPerWheel > 0 && ticksPerWheel <= 1 << 30, "Ticks per wheel must be between 1 and 2^30!");
+
+        int size = 1;
+        while(size < ticksPerWheel)
+            size <<= 1;
+
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        for(int i = 0; i < size; i++)
+            wheel[i] = new Bucket();
+        this.mask = size - 1;
+        this.pendingTimeouts = new ConcurrentLinkedQueue<>();
+        this.cancelledTimeouts = new ConcurrentLinkedQueue<>();
+        this.startTime = System.nanoTime();
+
+        this.worker = new Thread(this::run, "HashedWheelTimeoutScheduler-" + THREAD_COUNT.incrementAndGet());
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        if(shutdown)
+            throw new RejectedExecutionException("Cannot schedule timeouts on a HashedWheelTimeoutScheduler that is shut down!");
+
+        WheelTimeout timeout = new WheelTimeout(task, System.nanoTime() - startTime + unit.toNanos(delay));
+        // Timeouts are only hashed into the wheel by the worker, which keeps the buckets single-threaded
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return shutdown;
+    }
+
+    @Override
+    public void shutdown()
+    {
+        shutdown = true;
+        worker.interrupt();
+    }
+
+    private void run()
+    {
+        while(!shutdown)
+        {
+            long deadline = waitForNextTick();
+            if(deadline < 0)
+                break;
+
+            removeCancelledTimeouts();
+            transferPendingTimeouts();
+            wheel[(int) (tick & mask)].expireTimeouts(deadline);
+            tick++;
+        }
+
+        pendingTimeouts.clear();
+        cancelledTimeouts.clear();
+    }
+
+    private long waitForNextTick()
+    {
+        long deadline = tickNanos * (tick + 1);
+        while(true)
+        {
+            long current = System.nanoTime() - startTime;
+            long sleepMillis = (deadline - current + 999999) / 1000000;
+            if(sleepMillis <= 0)
+                return current;
+
+            try
+            {
+                Thread.sleep(sleepMillis);
+            }
+            catch(InterruptedException ex)
+            {
+                if(shutdown)
+                    return -1;
+            }
+        }
+    }
+
+    private void removeCancelledTimeouts()
+    {
+        WheelTimeout timeout;
+        while((timeout = cancelledTimeouts.poll()) != null)
+        {
+            if(timeout.bucket != null)
+                timeout.bucket.remove(timeout);
+        }
+    }
+
+    private void transferPendingTimeouts()
+    {
+        // Bound the amount of transfers so a flood of new timeouts can't stall the current tick
+        for(int i = 0; i < MAX_TRANSFERS_PER_TICK; i++)
+        {
+            WheelTimeout timeout = pendingTimeouts.poll();
+            if(timeout == null)
+                break;
+            if(timeout.state.get() == WheelTimeout.CANCELLED)
+                continue;
+
+            long ticks = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            // Deadlines that already passed are expired on the current tick
+            wheel[(int) (Math.max(ticks, tick) & mask)].add(timeout);
+        }
+    }
+
+    private final class WheelTimeout implements Timeout
+    {
+        static final int PENDING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        final Runnable task;
+        final long deadline;
+        final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // Only accessed by the worker thread
+        long remainingRounds;
+        Bucket bucket;
+        WheelTimeout prev, next;
+
+        WheelTimeout(Runnable task, long deadline)
+        {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel()
+        {
+            if(!state.compareAndSet(PENDING, CANCELLED))
+                return false;
+            // The worker unlinks it from its bucket on its next tick
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        void expire()
+        {
+            if(!state.compareAndSet(PENDING, EXPIRED))
+                return;
+            try
+            {
+                task.run();
+            }
+            catch(Throwable t)
+            {
+                LOG.error("A timeout threw an exception", t);
+            }
+        }
+    }
+
+    /**
+     * A doubly-linked list of timeouts, only ever accessed by the worker thread.
+     */
+    private static final class Bucket
+    {
+        WheelTimeout head, tail;
+
+        void add(WheelTimeout timeout)
+        {
+            timeout.bucket = this;
+            if(head == null)
+            {
+                head = tail = timeout;
+            }
+            else
+            {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expireTimeouts(long deadline)
+        {
+            WheelTimeout timeout = head;
+            while(timeout != null)
+            {
+                WheelTimeout next = timeout.next;
+                if(timeout.remainingRounds <= 0 && timeout.deadline <= deadline)
+                {
+                    remove(timeout);
+                    timeout.expire();
+                }
+                else if(timeout.state.get() == WheelTimeout.CANCELLED)
+                {
+                    remove(timeout);
+                }
+                else if(timeout.remainingRounds > 0)
+                {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(WheelTimeout timeout)
+        {
+            if(timeout.bucket != this)
+                return;
+            if(timeout.prev != null)
+                timeout.prev.next = timeout.next;
+            if(timeout.next != null)
+                timeout.next.prev = timeout.prev;
+            if(timeout == head)
+                head = timeout.next;
+            if(timeout == tail)
+                tail = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.waiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the timeouts of the WaitingEvents registered to an {@link EventWaiter EventWaiter}.
+ *
+ * <p>Most WaitingEvents complete long before their timeout elapses, so implementations should
+ * make cancelling a scheduled timeout cheap, and should release it as soon as possible once cancelled.
+ *
+ * <p>Two implementations are provided:
+ * <ul>
+ *     <li>The one used when constructing an EventWaiter with a
+ *     {@link java.util.concurrent.ScheduledExecutorService ScheduledExecutorService}, which schedules
+ *     each timeout as its own task on that executor.</li>
+ *
+ *     <li>{@link HashedWheelTimeoutScheduler HashedWheelTimeoutScheduler}, which trades timeout precision
+ *     for constant-time scheduling and cancellation, and is better suited for large amounts of WaitingEvents.</li>
+ * </ul>
+ *
+ * @see    EventWaiter#EventWaiter(TimeoutScheduler, boolean)
+ */
+public interface TimeoutScheduler
+{
+    /**
+     * Schedules the provided task to run once the provided delay has elapsed.
+     *
+     * @param  task
+     *         The task to run.
+     * @param  delay
+     *         The amount of time to wait before running the task.
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the delay.
+     *
+     * @return A handle that can be used to cancel the task before it runs.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException
+     *         If this TimeoutScheduler is shut down.
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit);
+
+    /**
+     * Gets whether this TimeoutScheduler is shut down, and no longer accepts new tasks.
+     *
+     * @return {@code true} if this TimeoutScheduler is shut down, {@code false} otherwise.
+     */
+    boolean isShutdown();
+
+    /**
+     * Shuts down this TimeoutScheduler.
+     * <br>No new tasks will be accepted after this.
+     */
+    void shutdown();
+
+    /**
+     * A task scheduled by a {@link TimeoutScheduler TimeoutScheduler}.
+     */
+    interface Timeout
+    {
+        /**
+         * Cancels the task if it hasn't run yet.
+         *
+         * @return {@code true} if the task was cancelled, {@code false} if it already ran or was cancelled before.
+         */
+        boolean cancel();
+    }
+}
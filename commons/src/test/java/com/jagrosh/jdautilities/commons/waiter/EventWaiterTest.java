@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.waiter;
+
+import net.dv8tion.jda.api.events.Event;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.ToLongFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventWaiterTest
+{
+    private static final int DISPATCH_THREADS = 16;
+    private static final int REGISTER_THREADS = 4;
+    private static final int WAITERS_PER_THREAD = 250;
+    private static final int WAITERS = REGISTER_THREADS * WAITERS_PER_THREAD;
+
+    private ScheduledExecutorService threadpool;
+    private EventWaiter waiter;
+
+    @Before
+    public void setUp()
+    {
+        threadpool = Executors.newSingleThreadScheduledExecutor();
+        waiter = new EventWaiter(threadpool, false);
+    }
+
+    @After
+    public void tearDown()
+    {
+        waiter.shutdown();
+    }
+
+    @Test
+    public void testConcurrentRegistrationAndDispatch() throws InterruptedException
+    {
+        runStressTest(false);
+    }
+
+    @Test
+    public void testConcurrentKeyedRegistrationAndDispatch() throws InterruptedException
+    {
+        runStressTest(true);
+    }
+
+    @Test
+    public void testLimitsPerKeyExtractor()
+    {
+        ToLongFunction<TestEvent> channelKey = e -> e.id;
+        ToLongFunction<TestEvent> userKey = e -> e.id;
+        EventWaiter limited = new EventWaiterBuilder()
+            .setThreadpool(threadpool)
+            .setShutdownAutomatically(false)
+            .setMaxWaitersPerKey(channelKey, 1)
+            .setMaxWaitersPerKey(userKey, 2)
+            .build();
+
+        // The same key counts separately for each key extractor
+        assertFalse(limited.waitForEventAsync(TestEvent.class, channelKey, 1, e -> true).isDone());
+        assertTrue(limited.waitForEventAsync(TestEvent.class, channelKey, 1, e -> true).isCompletedExceptionally());
+        assertFalse(limited.waitForEventAsync(TestEvent.class, userKey, 1, e -> true).isDone());
+        assertFalse(limited.waitForEventAsync(TestEvent.class, userKey, 1, e -> true).isDone());
+        assertTrue(limited.waitForEventAsync(TestEvent.class, userKey, 1, e -> true).isCompletedExceptionally());
+
+        assertEquals(1, limited.getWaiterCount(channelKey, 1));
+        assertEquals(2, limited.getWaiterCount(userKey, 1));
+        assertEquals(3, limited.getWaiterCount(1));
+
+        // Keyed WaitingEvents are counted even without a limit
+        waiter.waitForEventAsync(TestEvent.class, TestEvent.ID, 5, e -> true);
+        assertEquals(1, waiter.getWaiterCount(TestEvent.ID, 5));
+        waiter.onEvent(new TestEvent(5));
+        assertEquals(0, waiter.getWaiterCount(5));
+    }
+
+    @Test
+    public void testDependentStageCanWaitForSameKey()
+    {
+        EventWaiter limited = new EventWaiterBuilder()
+            .setThreadpool(threadpool)
+            .setShutdownAutomatically(false)
+            .setMaxWaitersPerKey(TestEvent.ID, 1)
+            .build();
+
+        // The slot for the key is released before the stages depending on the first WaitingEvent run
+        CompletableFuture<TestEvent> second = limited.waitForEventAsync(TestEvent.class, TestEvent.ID, 1, e -> true)
+            .thenCompose(e -> limited.waitForEventAsync(TestEvent.class, TestEvent.ID, 1, e2 -> e2 != e));
+        limited.onEvent(new TestEvent(1));
+        assertFalse(second.isCompletedExceptionally());
+        assertEquals(1, limited.getWaiterCount(TestEvent.ID, 1));
+
+        limited.onEvent(new TestEvent(1));
+        assertTrue(second.isDone());
+        assertEquals(0, limited.getWaiterCount(1));
+
+        // Cancelling the returned future still removes the WaitingEvent
+        limited.waitForEventAsync(TestEvent.class, TestEvent.ID, 2, e -> true).cancel(false);
+        assertEquals(0, limited.getWaiterCount(2));
+    }
+
+    private void runStressTest(boolean keyed) throws InterruptedException
+    {
+        AtomicIntegerArray runs = new AtomicIntegerArray(WAITERS);
+        CountDownLatch matched = new CountDownLatch(WAITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        // Waiters are registered while events for all of them are already being fired,
+        // every waiter has to run exactly once no matter which thread gets to it first.
+        for(int t = 0; t < REGISTER_THREADS; t++)
+        {
+            int first = t * WAITERS_PER_THREAD;
+            threads.add(new Thread(() -> {
+                await(start);
+                for(int id = first; id < first + WAITERS_PER_THREAD; id++)
+                {
+                    int waiterId = id;
+                    if(keyed)
+                    {
+                        waiter.waitForEvent(TestEvent.class, TestEvent.ID, waiterId, e -> true, e -> {
+                            runs.incrementAndGet(waiterId);
+                            matched.countDown();
+                        });
+                    }
+                    else
+                    {
+                        waiter.waitForEvent(TestEvent.class, e -> e.id == waiterId, e -> {
+                            runs.incrementAndGet(waiterId);
+                            matched.countDown();
+                        });
+                    }
+                }
+            }));
+        }
+        for(int t = 0; t < DISPATCH_THREADS; t++)
+        {
+            threads.add(new Thread(() -> {
+                await(start);
+                while(matched.getCount() > 0)
+                {
+                    for(int id = 0; id < WAITERS; id++)
+                        waiter.onEvent(new TestEvent(id));
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        start.countDown();
+        assertTrue("Some WaitingEvents were lost", matched.await(30, TimeUnit.SECONDS));
+        for(Thread thread : threads)
+            thread.join();
+
+        for(int id = 0; id < WAITERS; id++)
+            assertEquals("WaitingEvent " + id + " ran the wrong amount of times", 1, runs.get(id));
+        assertEquals(0, waiter.getWaiterCount());
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class TestEvent extends Event
+    {
+        static final ToLongFunction<TestEvent> ID = e -> e.id;
+
+        final int id;
+
+        TestEvent(int id)
+        {
+            super(null, 0);
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016-2018 John Grosh (jagrosh) & Kaidan Gustave (TheMonitorLizard)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.waiter;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares the {@link HashedWheelTimeoutScheduler} with scheduling every timeout on a
+ * {@link java.util.concurrent.ScheduledExecutorService ScheduledExecutorService}, with and without
+ * its remove-on-cancel policy.
+ *
+ * <p>Every round schedules menu-like timeouts of five minutes, then cancels 90% of them as if their
+ * waiters completed. The CPU cost is the time spent scheduling and cancelling, the memory cost is
+ * how much of the heap is still retained once the cancelled timeouts had a chance to be dropped.
+ *
+ * <p>This isn't run with the tests, run its main method to get the numbers.
+ */
+public class TimeoutSchedulerBenchmark
+{
+    private static final int TIMEOUTS = 200_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    private static int sink;
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        report("wheel (10ms tick)", () -> new HashedWheelTimeoutScheduler(10, TimeUnit.MILLISECONDS, 512));
+        report("executor, remove-on-cancel", () -> executor(true));
+        report("executor", () -> executor(false));
+    }
+
+    private static TimeoutScheduler executor(boolean removeOnCancel)
+    {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(removeOnCancel);
+        // Drop the pending timeouts on shutdown, so rounds don't leak into each other
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return new ExecutorTimeoutScheduler(executor);
+    }
+
+    private static void report(String name, Supplier<TimeoutScheduler> factory) throws InterruptedException
+    {
+        for(int i = 0; i < WARMUP_ROUNDS; i++)
+            run(factory.get());
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        for(int i = 0; i < ROUNDS; i++)
+        {
+            long[] result = run(factory.get());
+            for(int j = 0; j < best.length; j++)
+                best[j] = Math.min(best[j], result[j]);
+        }
+        System.out.printf("%-28s schedule %,6d ms   cancel %,6d ms   retained %,8.1f MB%n", name,
+            TimeUnit.NANOSECONDS.toMillis(best[0]), TimeUnit.NANOSECONDS.toMillis(best[1]), best[2] / (1024.0 * 1024.0));
+    }
+
+    /**
+     * @return The nanoseconds spent scheduling, the nanoseconds spent cancelling, and the bytes retained
+     */
+    private static long[] run(TimeoutScheduler scheduler) throws InterruptedException
+    {
+        try
+        {
+            long baseline = usedMemory();
+            TimeoutScheduler.Timeout[] timeouts = new TimeoutScheduler.Timeout[TIMEOUTS];
+            Runnable task = () -> {};
+
+            long start = System.nanoTime();
+            for(int i = 0; i < TIMEOUTS; i++)
+                timeouts[i] = scheduler.schedule(task, 5, TimeUnit.MINUTES);
+            long scheduled = System.nanoTime();
+            for(int i = 0; i < TIMEOUTS; i++)
+            {
+                if(i % 10 != 0)
+                    timeouts[i].cancel();
+            }
+            long cancelled = System.nanoTime();
+
+            // Only keep the handles of the timeouts that are still pending, like an EventWaiter would
+            for(int i = 0; i < TIMEOUTS; i++)
+            {
+                if(i % 10 != 0)
+                    timeouts[i] = null;
+            }
+            // Give the wheel a few ticks to unlink what was cancelled
+            Thread.sleep(100);
+            long retained = usedMemory() - baseline;
+            // Keep the pending handles reachable until after the measurement
+            for(TimeoutScheduler.Timeout timeout : timeouts)
+            {
+                if(timeout != null)
+                    sink++;
+            }
+            return new long[] {scheduled - start, cancelled - scheduled, Math.max(0, retained)};
+        }
+        finally
+        {
+            scheduler.shutdown();
+        }
+    }
+
+    private static long usedMemory() throws InterruptedException
+    {
+        Runtime runtime = Runtime.getRuntime();
+        // Also gives the worker of a scheduler that was just shut down time to exit, so it can be collected
+        for(int i = 0; i < 5; i++)
+        {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
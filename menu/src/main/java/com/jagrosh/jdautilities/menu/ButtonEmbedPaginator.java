@@ -42,6 +42,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
@@ -203,9 +204,13 @@ public class ButtonEmbedPaginator extends Menu {
         // store this for later
         paginators.add(message.getId());
 
-        waiter.waitForEvent(ButtonInteractionEvent.class,
+        // This is intentionally not keyed, checkButton also answers
+        // buttons of paginators that are no longer active.
+        // One subscription handles every page turn, keeping track of the page it's on.
+        AtomicInteger page = new AtomicInteger(pageNum);
+        waiter.subscribe(ButtonInteractionEvent.class,
             event -> checkButton(event, message.getIdLong()),
-            event -> handleButtonInteraction(event, message, pageNum),
+            (event, subscription) -> handleButtonInteraction(event, message, page, subscription),
             timeout, unit, () -> finalAction.accept(message));
     }
 
@@ -228,16 +233,33 @@ public class ButtonEmbedPaginator extends Menu {
         }
     }
 
-    private void handleButtonInteraction(ButtonInteractionEvent event, Message message, int pageNum) {
-        int newPageNum = pageNum;
-        int pages = embeds.size();
-
+    private void handleButtonInteraction(ButtonInteractionEvent event, Message message, AtomicInteger page,
+                                         EventWaiter.Subscription subscription) {
         Emoji emoji = event.getButton().getEmoji();
         if (emoji == null) {
             LoggerFactory.getLogger(this.getClass()).warn("Received null emoji in ButtonInteractionEvent!");
             return;
         }
 
+        if (emoji.equals(STOP)) {
+            subscription.close();
+            event.deferEdit().queue(
+                interactionHook -> finalAction.accept(message)
+            );
+            return;
+        }
+
+        // The events of a subscription may be handled on several threads at once,
+        // so the page is turned atomically and the page it was turned to is rendered
+        int n = page.updateAndGet(current -> turnPage(current, emoji));
+        event.deferEdit().queue(
+            interactionHook -> message.editMessage(renderPage(n)).setComponents(buildButtons()).queue()
+        );
+    }
+
+    // Gets the page the provided button emoji turns to from the provided page
+    private int turnPage(int newPageNum, Emoji emoji) {
+        int pages = embeds.size();
         if (emoji.equals(LEFT)) {
             if (newPageNum == 1 && wrapPageEnds)
                 newPageNum = pages + 1;
@@ -264,17 +286,8 @@ public class ButtonEmbedPaginator extends Menu {
                     newPageNum++;
                 }
             }
-        } else if (emoji.equals(STOP)) {
-            event.deferEdit().queue(
-                interactionHook -> finalAction.accept(message)
-            );
-            return;
         }
-
-        int n = newPageNum;
-        event.deferEdit().queue(
-            interactionHook -> message.editMessage(renderPage(n)).setComponents(buildButtons()).queue(m -> pagination(m, n))
-        );
+        return newPageNum;
     }
 
     private MessageEditData renderPage(int pageNum) {
@@ -116,7 +116,7 @@ public class ButtonMenu extends Menu
                 {
                     // This is the last reaction added.
                     r.queue(v -> {
-                        waiter.waitForEvent(MessageReactionAddEvent.class, event -> {
+                        waiter.waitForEvent(MessageReactionAddEvent.class, CHANNEL_KEY, m.getChannel().getIdLong(), event -> {
                             // If the message is not the same as the ButtonMenu
                             // currently being displayed.
                             if(!event.getMessageId().equals(m.getId()))
@@ -20,7 +20,6 @@ import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.dv8tion.jda.api.entities.emoji.Emoji;
-import net.dv8tion.jda.api.events.message.GenericMessageEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
 import net.dv8tion.jda.api.exceptions.PermissionException;
@@ -33,6 +32,7 @@ import net.dv8tion.jda.internal.utils.Checks;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
@@ -213,7 +213,9 @@ public class EmbedPaginator extends Menu{
 
     private void paginationWithTextInput(Message message, int pageNum)
     {
-        waiter.waitForEvent(GenericMessageEvent.class, event -> {
+        // One subscription handles every page turn, keeping track of the page it's on
+        AtomicInteger page = new AtomicInteger(pageNum);
+        waiter.subscribe(REACTION_OR_MESSAGE, CHANNEL_KEY, message.getChannel().getIdLong(), event -> {
             if(event instanceof MessageReactionAddEvent)
                 return checkReaction((MessageReactionAddEvent) event, message.getIdLong());
             else if(event instanceof MessageReceivedEvent)
@@ -233,16 +235,16 @@ public class EmbedPaginator extends Menu{
                     try {
                         int i = Integer.parseInt(rawContent);
 
-                        if(1 <= i && i <= embeds.size() && i != pageNum)
+                        if(1 <= i && i <= embeds.size() && i != page.get())
                             return isValidUser(mre.getAuthor(), mre.isFromGuild() ? mre.getGuild() : null);
                     } catch(NumberFormatException ignored) {}
                 }
             }
             return false;
-        }, event -> {
+        }, (event, subscription) -> {
             if(event instanceof MessageReactionAddEvent)
             {
-                handleMessageReactionAddAction((MessageReactionAddEvent)event, message, pageNum);
+                handleMessageReactionAddAction((MessageReactionAddEvent)event, message, page, subscription);
             }
             else
             {
@@ -250,16 +252,24 @@ public class EmbedPaginator extends Menu{
                 String rawContent = mre.getMessage().getContentRaw().trim();
 
                 int pages = embeds.size();
-                final int targetPage;
-
-                if(leftText != null && rawContent.equalsIgnoreCase(leftText) && (1 < pageNum || wrapPageEnds))
-                    targetPage = pageNum - 1 < 1 && wrapPageEnds ? pages : pageNum - 1;
-                else if(rightText != null && rawContent.equalsIgnoreCase(rightText) && (pageNum < pages || wrapPageEnds))
-                    targetPage = pageNum + 1 > pages && wrapPageEnds ? 1 : pageNum + 1;
-                else
-                    targetPage = Integer.parseInt(rawContent);
-
-                message.editMessage(renderPage(targetPage)).queue(m -> pagination(m, targetPage));
+                // Turned the same way as the reactions are
+                synchronized(page)
+                {
+                    final int targetPage = page.updateAndGet(currentPage -> {
+                        if(leftText != null && rawContent.equalsIgnoreCase(leftText) && (1 < currentPage || wrapPageEnds))
+                            return currentPage - 1 < 1 && wrapPageEnds ? pages : currentPage - 1;
+                        if(rightText != null && rawContent.equalsIgnoreCase(rightText) && (currentPage < pages || wrapPageEnds))
+                            return currentPage + 1 > pages && wrapPageEnds ? 1 : currentPage + 1;
+                        // The condition checked this is a page number, unless the text matched
+                        // one of the above but another page turn made it not apply anymore
+                        try {
+                            return Integer.parseInt(rawContent);
+                        } catch(NumberFormatException ignored) {
+                            return currentPage;
+                        }
+                    });
+                    message.editMessage(renderPage(targetPage)).queue();
+                }
                 mre.getMessage().delete().queue(v -> {}, t -> {});
             }
         }, timeout, unit, () -> finalAction.accept(message));
@@ -267,9 +277,10 @@ public class EmbedPaginator extends Menu{
 
     private void paginationWithoutTextInput(Message message, int pageNum)
     {
-        waiter.waitForEvent(MessageReactionAddEvent.class,
+        AtomicInteger page = new AtomicInteger(pageNum);
+        waiter.subscribe(MessageReactionAddEvent.class, CHANNEL_KEY, message.getChannel().getIdLong(),
             event -> checkReaction(event, message.getIdLong()),
-            event -> handleMessageReactionAddAction(event, message, pageNum),
+            (event, subscription) -> handleMessageReactionAddAction(event, message, page, subscription),
             timeout, unit, () -> finalAction.accept(message));
     }
 
@@ -291,11 +302,35 @@ public class EmbedPaginator extends Menu{
         }
     }
 
-    private void handleMessageReactionAddAction(MessageReactionAddEvent event, Message message, int pageNum)
+    private void handleMessageReactionAddAction(MessageReactionAddEvent event, Message message, AtomicInteger page,
+                                                EventWaiter.Subscription subscription)
+    {
+        String emoji = event.getReaction().getEmoji().getName();
+        if(STOP.equals(emoji))
+        {
+            subscription.close();
+            finalAction.accept(message);
+            return;
+        }
+
+        try {
+            event.getReaction().removeReaction(event.getUser()).queue();
+        } catch(PermissionException ignored) {}
+
+        // The events of a subscription may be handled on several threads at once, so the page is turned
+        // atomically, and the edit is queued under the same lock so edits are sent in the order of the turns
+        synchronized(page)
+        {
+            int newPageNum = page.updateAndGet(current -> turnPage(current, emoji));
+            message.editMessage(renderPage(newPageNum)).queue();
+        }
+    }
+
+    // Gets the page the provided reaction emoji turns to from the provided page
+    private int turnPage(int newPageNum, String emoji)
     {
-        int newPageNum = pageNum;
         int pages = embeds.size();
-        switch(event.getReaction().getEmoji().getName())
+        switch(emoji)
         {
             case LEFT:
                 if(newPageNum == 1 && wrapPageEnds)
@@ -331,17 +366,8 @@ public class EmbedPaginator extends Menu{
                     }
                 }
                 break;
-            case STOP:
-                finalAction.accept(message);
-                return;
         }
-
-        try {
-            event.getReaction().removeReaction(event.getUser()).queue();
-        } catch(PermissionException ignored) {}
-
-        int n = newPageNum;
-        message.editMessage(renderPage(newPageNum)).queue(m -> pagination(m, n));
+        return newPageNum;
     }
 
     private MessageEditData renderPage(int pageNum)
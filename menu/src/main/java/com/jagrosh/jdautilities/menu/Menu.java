@@ -16,13 +16,19 @@
 package com.jagrosh.jdautilities.menu;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
 import com.jagrosh.jdautilities.commons.waiter.EventWaiter;
 import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import net.dv8tion.jda.api.events.message.GenericMessageEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
 
 import javax.annotation.Nullable;
 
@@ -56,6 +62,27 @@ import javax.annotation.Nullable;
  */
 public abstract class Menu
 {
+    /**
+     * Keys a {@link net.dv8tion.jda.api.events.message.GenericMessageEvent GenericMessageEvent} by the ID
+     * of the channel it was fired in.
+     * <br>Menus register their WaitingEvents with this and the ID of their channel, so that they are
+     * only ever tested against events from the channel they are displayed in.
+     *
+     * @see com.jagrosh.jdautilities.commons.waiter.EventWaiter#waitForEvent(Class, ToLongFunction, long, java.util.function.Predicate, java.util.function.Consumer, long, TimeUnit, Runnable)
+     */
+    protected static final ToLongFunction<GenericMessageEvent> CHANNEL_KEY = event -> event.getChannel().getIdLong();
+
+    /**
+     * The types of Event menus accepting both reactions and text input wait for.
+     * <br>Menus register a single WaitingEvent for both of these rather than for
+     * {@link net.dv8tion.jda.api.events.message.GenericMessageEvent GenericMessageEvent}, so that
+     * their conditions aren't tested against message updates, deletions, and the like.
+     *
+     * @see com.jagrosh.jdautilities.commons.waiter.EventWaiter#waitForEvent(Collection, ToLongFunction, long, java.util.function.Predicate, java.util.function.Consumer, long, TimeUnit, Runnable)
+     */
+    protected static final Collection<Class<? extends GenericMessageEvent>> REACTION_OR_MESSAGE =
+        Collections.unmodifiableList(Arrays.asList(MessageReactionAddEvent.class, MessageReceivedEvent.class));
+
     protected final EventWaiter waiter;
     protected Set<User> users;
     protected Set<Role> roles;
@@ -25,7 +25,6 @@ import net.dv8tion.jda.api.entities.channel.ChannelType;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.dv8tion.jda.api.entities.emoji.Emoji;
-import net.dv8tion.jda.api.events.message.GenericMessageEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
 import net.dv8tion.jda.api.exceptions.PermissionException;
@@ -208,8 +207,8 @@ public class OrderedMenu extends Menu
     // Waits for either a button being pushed OR a typed input
     private void waitGeneric(Message m)
     {
-        // Wait for a GenericMessageEvent
-        waiter.waitForEvent(GenericMessageEvent.class, e -> {
+        // Wait for a reaction or a message in the same channel
+        waiter.waitForEvent(REACTION_OR_MESSAGE, CHANNEL_KEY, m.getChannel().getIdLong(), e -> {
             // If we're dealing with a message reaction being added we return whether it's valid
             if(e instanceof MessageReactionAddEvent)
                 return isValidReaction(m, (MessageReactionAddEvent)e);
@@ -251,7 +250,7 @@ public class OrderedMenu extends Menu
     private void waitReactionOnly(Message m)
     {
         // This one is only for reactions
-        waiter.waitForEvent(MessageReactionAddEvent.class, e -> {
+        waiter.waitForEvent(MessageReactionAddEvent.class, CHANNEL_KEY, m.getChannel().getIdLong(), e -> {
             return isValidReaction(m, e);
         }, e -> {
             m.delete().queue();
@@ -22,7 +22,6 @@ import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.dv8tion.jda.api.entities.emoji.Emoji;
-import net.dv8tion.jda.api.events.message.GenericMessageEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
 import net.dv8tion.jda.api.exceptions.PermissionException;
@@ -39,6 +38,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
@@ -251,7 +251,9 @@ public class Paginator extends Menu
 
     private void paginationWithTextInput(Message message, int pageNum)
     {
-        waiter.waitForEvent(GenericMessageEvent.class, event -> {
+        // One subscription handles every page turn, keeping track of the page it's on
+        AtomicInteger page = new AtomicInteger(pageNum);
+        waiter.subscribe(REACTION_OR_MESSAGE, CHANNEL_KEY, message.getChannel().getIdLong(), event -> {
             if(event instanceof MessageReactionAddEvent)
                 return checkReaction((MessageReactionAddEvent) event, message.getIdLong());
             else if(event instanceof MessageReceivedEvent)
@@ -272,38 +274,41 @@ public class Paginator extends Menu
                     try {
                         int i = Integer.parseInt(rawContent);
                         // Minimum 1, Maximum the number of pages, never the current page number
-                        if(1 <= i && i <= pages && i != pageNum)
+                        if(1 <= i && i <= pages && i != page.get())
                             return isValidUser(mre.getAuthor(), mre.isFromGuild() ? mre.getGuild() : null);
                     } catch(NumberFormatException ignored) {}
                 }
             }
             // Default return false
             return false;
-        }, event -> {
+        }, (event, subscription) -> {
             if(event instanceof MessageReactionAddEvent)
             {
-                handleMessageReactionAddAction((MessageReactionAddEvent) event, message, pageNum);
+                handleMessageReactionAddAction((MessageReactionAddEvent) event, message, page, subscription);
             }
             else
             {
                 MessageReceivedEvent mre = ((MessageReceivedEvent) event);
                 String rawContent = mre.getMessage().getContentRaw().trim();
 
-                final int targetPage;
-
-                if(leftText != null && rawContent.equalsIgnoreCase(leftText) && (1 < pageNum || wrapPageEnds))
-                    targetPage = pageNum - 1 < 1 && wrapPageEnds? pages : pageNum - 1;
-                else if(rightText != null && rawContent.equalsIgnoreCase(rightText) && (pageNum < pages || wrapPageEnds))
-                    targetPage = pageNum + 1 > pages && wrapPageEnds? 1 : pageNum + 1;
-                else
+                // Turned the same way as the reactions are
+                synchronized(page)
                 {
-                    // This will run without fail because we know the above conditions don't apply but our logic
-                    // when checking the event in the block above this action block has guaranteed this is the only
-                    // option at this point
-                    targetPage = Integer.parseInt(rawContent);
+                    final int targetPage = page.updateAndGet(currentPage -> {
+                        if(leftText != null && rawContent.equalsIgnoreCase(leftText) && (1 < currentPage || wrapPageEnds))
+                            return currentPage - 1 < 1 && wrapPageEnds? pages : currentPage - 1;
+                        if(rightText != null && rawContent.equalsIgnoreCase(rightText) && (currentPage < pages || wrapPageEnds))
+                            return currentPage + 1 > pages && wrapPageEnds? 1 : currentPage + 1;
+                        // The condition checked this is a page number, unless the text matched
+                        // one of the above but another page turn made it not apply anymore
+                        try {
+                            return Integer.parseInt(rawContent);
+                        } catch(NumberFormatException ignored) {
+                            return currentPage;
+                        }
+                    });
+                    message.editMessage(renderPage(targetPage)).queue();
                 }
-
-                message.editMessage(renderPage(targetPage)).queue(m -> pagination(m, targetPage));
                 mre.getMessage().delete().queue(v -> {}, t -> {}); // delete the calling message so it doesn't get spammy
             }
         }, timeout, unit, () -> finalAction.accept(message));
@@ -311,9 +316,10 @@ public class Paginator extends Menu
 
     private void paginationWithoutTextInput(Message message, int pageNum)
     {
-        waiter.waitForEvent(MessageReactionAddEvent.class,
+        AtomicInteger page = new AtomicInteger(pageNum);
+        waiter.subscribe(MessageReactionAddEvent.class, CHANNEL_KEY, message.getChannel().getIdLong(),
             event -> checkReaction(event, message.getIdLong()), // Check Reaction
-            event -> handleMessageReactionAddAction(event, message, pageNum), // Handle Reaction
+            (event, subscription) -> handleMessageReactionAddAction(event, message, page, subscription), // Handle Reaction
             timeout, unit, () -> finalAction.accept(message));
     }
 
@@ -340,10 +346,34 @@ public class Paginator extends Menu
     }
 
     // Private method that handles MessageReactionAddEvents
-    private void handleMessageReactionAddAction(MessageReactionAddEvent event, Message message, int pageNum)
+    private void handleMessageReactionAddAction(MessageReactionAddEvent event, Message message, AtomicInteger page,
+                                                EventWaiter.Subscription subscription)
+    {
+        String emoji = event.getReaction().getEmoji().getName();
+        if(STOP.equals(emoji))
+        {
+            subscription.close();
+            finalAction.accept(message);
+            return;
+        }
+
+        try {
+            event.getReaction().removeReaction(event.getUser()).queue();
+        } catch(PermissionException ignored) {}
+
+        // The events of a subscription may be handled on several threads at once, so the page is turned
+        // atomically, and the edit is queued under the same lock so edits are sent in the order of the turns
+        synchronized(page)
+        {
+            int newPageNum = page.updateAndGet(current -> turnPage(current, emoji));
+            message.editMessage(renderPage(newPageNum)).queue();
+        }
+    }
+
+    // Gets the page the provided reaction emoji turns to from the provided page
+    private int turnPage(int newPageNum, String emoji)
     {
-        int newPageNum = pageNum;
-        switch(event.getReaction().getEmoji().getName())
+        switch(emoji)
         {
             case LEFT:
                 if(newPageNum == 1 && wrapPageEnds)
@@ -379,17 +409,8 @@ public class Paginator extends Menu
                     }
                 }
                 break;
-            case STOP:
-                finalAction.accept(message);
-                return;
         }
-
-        try {
-            event.getReaction().removeReaction(event.getUser()).queue();
-        } catch(PermissionException ignored) {}
-
-        int n = newPageNum;
-        message.editMessage(renderPage(newPageNum)).queue(m -> pagination(m, n));
+        return newPageNum;
     }
 
     private MessageEditData renderPage(int pageNum)
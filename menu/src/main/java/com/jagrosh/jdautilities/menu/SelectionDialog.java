@@ -185,7 +185,7 @@ public class SelectionDialog extends Menu
 
     private void selectionDialog(Message message, int selection)
     {
-        waiter.waitForEvent(MessageReactionAddEvent.class, event -> {
+        waiter.waitForEvent(MessageReactionAddEvent.class, CHANNEL_KEY, message.getChannel().getIdLong(), event -> {
             if(!event.getMessageId().equals(message.getId()))
                 return false;
             if(!(UP.equals(event.getReaction().getEmoji().getName())
@@ -22,7 +22,6 @@ import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.dv8tion.jda.api.entities.emoji.Emoji;
-import net.dv8tion.jda.api.events.message.GenericMessageEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
 import net.dv8tion.jda.api.exceptions.PermissionException;
@@ -196,7 +195,7 @@ public class Slideshow extends Menu
 
     private void paginationWithTextInput(Message message, int pageNum)
     {
-        waiter.waitForEvent(GenericMessageEvent.class, event -> {
+        waiter.waitForEvent(REACTION_OR_MESSAGE, CHANNEL_KEY, message.getChannel().getIdLong(), event -> {
             if(event instanceof MessageReactionAddEvent)
                 return checkReaction((MessageReactionAddEvent) event, message.getIdLong());
             else if(event instanceof MessageReceivedEvent)
@@ -257,7 +256,7 @@ public class Slideshow extends Menu
 
     private void paginationWithoutTextInput(Message message, int pageNum)
     {
-        waiter.waitForEvent(MessageReactionAddEvent.class,
+        waiter.waitForEvent(MessageReactionAddEvent.class, CHANNEL_KEY, message.getChannel().getIdLong(),
             event -> checkReaction(event, message.getIdLong()),
             event -> handleMessageReactionAddAction(event, message, pageNum),
             timeout, unit, () -> finalAction.accept(message));